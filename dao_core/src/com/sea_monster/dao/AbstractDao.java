@@ -22,19 +22,28 @@ import android.database.CursorWindow;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.sea_monster.dao.identityscope.IdentityScope;
 import com.sea_monster.dao.identityscope.IdentityScopeLong;
+import com.sea_monster.dao.identityscope.IdentityScopeStats;
 import com.sea_monster.dao.internal.DaoConfig;
 import com.sea_monster.dao.internal.FastCursor;
+import com.sea_monster.dao.internal.QueryParameters;
+import com.sea_monster.dao.internal.RowCounter;
 import com.sea_monster.dao.internal.TableStatements;
+import com.sea_monster.dao.internal.TableVersion;
 import com.sea_monster.dao.query.Query;
 import com.sea_monster.dao.query.QueryBuilder;
+import com.sea_monster.dao.query.QueryCache;
 
 /**
  * Base class for all DAOs: Implements entity operations like insert, load, delete, and query.
@@ -51,22 +60,40 @@ import com.sea_monster.dao.query.QueryBuilder;
 /*
  * When operating on TX, statements, or identity scope the following locking order must be met to avoid deadlocks:
  * 
- * 1.) If not inside a TX already, begin a TX to acquire a DB connection (connection is to be handled like a lock)
+ * 1.) The SQLiteStatement: statements are confined to the calling thread (see TableStatements), so they are not locked;
+ * single statements run without a TX, writes of several statements begin a TX (or join the one in progress)
  * 
- * 2.) The SQLiteStatement
- * 
- * 3.) identityScope
+ * 2.) identityScope
  */
 public abstract class AbstractDao<T, K> {
+    /** Column mask to update all columns (used without dirty tracking). */
+    private static final long ALL_COLUMNS = -1L;
+
     protected final SQLiteDatabase db;
     protected final DaoConfig config;
     protected IdentityScope<K, T> identityScope;
     protected IdentityScopeLong<T> identityScopeLong;
     protected TableStatements statements;
+    /** Null unless a row count mode is set (see {@link RowCountMode}). */
+    private final RowCounter rowCounter;
+    private final TableVersion tableVersion;
 
     protected final AbstractDaoSession session;
     protected final int pkOrdinal;
 
+    private volatile boolean batchInsertEnabled = true;
+
+    /**
+     * Dirty tracking only: entities written by the calling thread whose dirty flags are reset once the write is
+     * committed (see {@link #onWriteSucceeded()}).
+     */
+    private final ThreadLocal<List<T>> writtenEntities = new ThreadLocal<List<T>>() {
+        @Override
+        protected List<T> initialValue() {
+            return new ArrayList<T>();
+        }
+    };
+
     public AbstractDao(DaoConfig config) {
         this(config, null);
     }
@@ -81,6 +108,8 @@ public abstract class AbstractDao<T, K> {
             identityScopeLong = (IdentityScopeLong<T>) identityScope;
         }
         statements = config.statements;
+        rowCounter = config.getRowCounter();
+        tableVersion = config.tableVersion;
         pkOrdinal = config.pkProperty != null ? config.pkProperty.ordinal : -1;
     }
 
@@ -140,6 +169,111 @@ public abstract class AbstractDao<T, K> {
         return loadUniqueAndCloseCursor(cursor);
     }
 
+    /**
+     * Loads the entities for the given PKs. Entities already in the identity scope are taken from there; the others
+     * are loaded using "WHERE pk IN (...)" queries.
+     * 
+     * @param keys
+     *            PK values; null values are ignored
+     * @return The entities in the order of the given keys (including duplicates); keys without matching entity are
+     *         skipped
+     */
+    public List<T> loadAllByKeys(Iterable<K> keys) {
+        Map<K, T> entities = loadAllByKeysAsMap(keys);
+        List<T> list = new ArrayList<T>(entities.size());
+        for (K key : keys) {
+            if (key != null) {
+                T entity = entities.get(key);
+                if (entity != null) {
+                    list.add(entity);
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Like {@link #loadAllByKeys(Iterable)}, but returns the entities mapped by their PK. The map iterates in the order
+     * the keys were given (first occurrence); keys without matching entity are not contained.
+     */
+    public Map<K, T> loadAllByKeysAsMap(Iterable<K> keys) {
+        assertSinglePk();
+        // Map to null for keys still to be loaded, keeping the requested order
+        Map<K, T> entities = new LinkedHashMap<K, T>();
+        List<K> missingKeys = new ArrayList<K>();
+        if (identityScope != null) {
+            identityScope.lock();
+        }
+        try {
+            for (K key : keys) {
+                if (key == null || entities.containsKey(key)) {
+                    continue;
+                }
+                T entity = identityScope != null ? identityScope.getNoLock(key) : null;
+                entities.put(key, entity);
+                if (entity == null) {
+                    missingKeys.add(key);
+                }
+            }
+        } finally {
+            if (identityScope != null) {
+                identityScope.unlock();
+            }
+        }
+
+        if (!missingKeys.isEmpty()) {
+            loadMissingKeys(missingKeys, entities);
+            Iterator<T> iterator = entities.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == null) {
+                    iterator.remove();
+                }
+            }
+        }
+        return entities;
+    }
+
+    /**
+     * Queries the given keys in chunks of cached statement sizes (padded by repeating the last key). Each chunk's cursor
+     * is filled, read, and closed before the next one is opened, so only one cursor window is held at a time.
+     */
+    private void loadMissingKeys(List<K> missingKeys, Map<K, T> entities) {
+        int keyCount = missingKeys.size();
+        for (int start = 0; start < keyCount;) {
+            int chunkSize = TableStatements.getKeysChunkSize(keyCount - start);
+            int end = Math.min(start + chunkSize, keyCount);
+            QueryParameters parameters = new QueryParameters(chunkSize);
+            for (int i = 0; i < chunkSize; i++) {
+                parameters.set(i, missingKeys.get(Math.min(start + i, end - 1)));
+            }
+            Cursor cursor = parameters.rawQuery(db, statements.getSelectByKeys(chunkSize));
+            try {
+                // Fills the window while not holding the identity scope lock
+                int rowCount = cursor.getCount();
+                if (identityScope != null) {
+                    identityScope.lock();
+                    identityScope.reserveRoom(rowCount);
+                }
+                try {
+                    Cursor rows = toFastCursorIfPossible(cursor);
+                    if (rows.moveToFirst()) {
+                        do {
+                            K key = readKey(rows, 0);
+                            entities.put(key, loadCurrent(rows, 0, false));
+                        } while (rows.moveToNext());
+                    }
+                } finally {
+                    if (identityScope != null) {
+                        identityScope.unlock();
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            start = end;
+        }
+    }
+
     public T loadByRowId(long rowId) {
         String[] idArray = new String[] { Long.toString(rowId) };
         Cursor cursor = db.rawQuery(statements.getSelectByRowId(), idArray);
@@ -218,8 +352,7 @@ public abstract class AbstractDao<T, K> {
      *            if true, the PKs of the given will be set after the insert; pass false to improve performance.
      */
     public void insertInTx(Iterable<T> entities, boolean setPrimaryKey) {
-        SQLiteStatement stmt = statements.getInsertStatement();
-        executeInsertInTx(stmt, entities, setPrimaryKey);
+        executeInsertInTx(false, entities, setPrimaryKey);
     }
 
     /**
@@ -232,8 +365,7 @@ public abstract class AbstractDao<T, K> {
      *            if true, the PKs of the given will be set after the insert; pass false to improve performance.
      */
     public void insertOrReplaceInTx(Iterable<T> entities, boolean setPrimaryKey) {
-        SQLiteStatement stmt = statements.getInsertOrReplaceStatement();
-        executeInsertInTx(stmt, entities, setPrimaryKey);
+        executeInsertInTx(true, entities, setPrimaryKey);
     }
 
     /**
@@ -256,33 +388,280 @@ public abstract class AbstractDao<T, K> {
         insertOrReplaceInTx(Arrays.asList(entities), isEntityUpdateable());
     }
 
-    private void executeInsertInTx(SQLiteStatement stmt, Iterable<T> entities, boolean setPrimaryKey) {
-        db.beginTransaction();
-        try {
-            synchronized (stmt) {
-                if (identityScope != null) {
-                    identityScope.lock();
-                }
+    /**
+     * Inserts all entities of the given iterator, committing a transaction every maxChunkRows entities or once a chunk
+     * took maxChunkMillis, whichever comes first. In contrast to {@link #insertInTx(Iterable)}, the journal stays small
+     * and other threads get the DB lock between chunks. Entities are consumed one by one, so the input is never
+     * materialized. If a chunk fails, the previous chunks stay committed.<br/>
+     * Must not be called inside a transaction, which would defer all commits.
+     * 
+     * @param listener
+     *            notified after each committed chunk, may be null
+     * @return number of inserted entities
+     */
+    public long insertInChunks(Iterator<T> entities, int maxChunkRows, long maxChunkMillis,
+            InsertProgressListener listener) {
+        if (maxChunkRows < 1) {
+            throw new IllegalArgumentException("Illegal chunk size: " + maxChunkRows);
+        }
+        if (maxChunkMillis < 1) {
+            throw new IllegalArgumentException("Illegal chunk duration: " + maxChunkMillis);
+        }
+        if (db.inTransaction()) {
+            throw new DaoException("Chunked inserts cannot commit inside a transaction");
+        }
+        boolean setPrimaryKey = isEntityUpdateable();
+        int[] batchSizes = null;
+        if (batchInsertEnabled && isBatchBindingSupported()) {
+            batchSizes = statements.getInsertBatchSizes();
+        }
+        int bufferSize = batchSizes != null && batchSizes.length > 0 ? batchSizes[0] : 1;
+        List<T> buffer = new ArrayList<T>(bufferSize);
+
+        long totalRows = 0;
+        long startTime = SystemClock.uptimeMillis();
+        while (entities.hasNext()) {
+            long chunkStartTime = SystemClock.uptimeMillis();
+            int chunkRows = 0;
+            boolean counted = beginWrite();
+            long rowDelta = RowCounter.UNKNOWN_DELTA;
+            try {
+                db.beginTransaction();
                 try {
-                    for (T entity : entities) {
-                        bindValues(stmt, entity);
-                        if (setPrimaryKey) {
-                            long rowId = stmt.executeInsert();
-                            updateKeyAfterInsertAndAttach(entity, rowId, false);
-                        } else {
-                            stmt.execute();
+                    SQLiteStatement stmt = statements.getInsertStatement();
+                    // Takes at least one row per chunk, so every chunk makes progress
+                    while (chunkRows < maxChunkRows && entities.hasNext()
+                            && (chunkRows == 0 || SystemClock.uptimeMillis() - chunkStartTime < maxChunkMillis)) {
+                        buffer.add(entities.next());
+                        chunkRows++;
+                        if (buffer.size() == bufferSize) {
+                            executeInsertBuffered(stmt, batchSizes, buffer, setPrimaryKey);
                         }
                     }
+                    if (!buffer.isEmpty()) {
+                        executeInsertBuffered(stmt, batchSizes, buffer, setPrimaryKey);
+                    }
+                    db.setTransactionSuccessful();
                 } finally {
+                    buffer.clear();
+                    db.endTransaction();
+                }
+                rowDelta = chunkRows;
+            } finally {
+                endWrite(counted, rowDelta);
+            }
+            onWriteSucceeded();
+            onTableChanged(TableChange.INSERT);
+            totalRows += chunkRows;
+            if (listener != null) {
+                long now = SystemClock.uptimeMillis();
+                listener.onChunkCommitted(totalRows, chunkRows, now - chunkStartTime, now - startTime);
+            }
+        }
+        return totalRows;
+    }
+
+    /** Calls {@link #insertInChunks(Iterator, int, long, InsertProgressListener)} without listener. */
+    public long insertInChunks(Iterator<T> entities, int maxChunkRows, long maxChunkMillis) {
+        return insertInChunks(entities, maxChunkRows, maxChunkMillis, null);
+    }
+
+    /** Inserts and clears the buffered entities; must be called inside a TX. */
+    private void executeInsertBuffered(SQLiteStatement stmt, int[] batchSizes, List<T> buffer, boolean setPrimaryKey) {
+        if (batchSizes != null && batchSizes.length > 0) {
+            executeInsertBatch(stmt, false, batchSizes, buffer, setPrimaryKey);
+        } else {
+            executeSingleRowInserts(stmt, buffer, 0, buffer.size(), setPrimaryKey);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Multi-row inserts are used by the InTx insert methods if enabled (the default) and supported by both the DAO and
+     * the SQLite version.
+     */
+    public boolean isBatchInsertEnabled() {
+        return batchInsertEnabled;
+    }
+
+    /** Enables or disables multi-row inserts for the InTx insert methods, see {@link #isBatchInsertEnabled()}. */
+    public void setBatchInsertEnabled(boolean batchInsertEnabled) {
+        this.batchInsertEnabled = batchInsertEnabled;
+    }
+
+    private void executeInsertInTx(boolean orReplace, Iterable<T> entities, boolean setPrimaryKey) {
+        int[] batchSizes = null;
+        if (batchInsertEnabled && isBatchBindingSupported()) {
+            batchSizes = statements.getInsertBatchSizes();
+        }
+        boolean counted = beginWrite();
+        long rowDelta = RowCounter.UNKNOWN_DELTA;
+        try {
+            int rows = 0;
+            db.beginTransaction();
+            try {
+                SQLiteStatement stmt = orReplace ? statements.getInsertOrReplaceStatement() : statements
+                        .getInsertStatement();
+                if (batchSizes != null && batchSizes.length > 0) {
+                    rows = executeInsertBatches(stmt, orReplace, batchSizes, entities, setPrimaryKey);
+                } else {
                     if (identityScope != null) {
-                        identityScope.unlock();
+                        identityScope.lock();
+                    }
+                    try {
+                        for (T entity : entities) {
+                            executeInsertRow(stmt, entity, setPrimaryKey);
+                            rows++;
+                        }
+                    } finally {
+                        if (identityScope != null) {
+                            identityScope.unlock();
+                        }
                     }
                 }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
             }
-            db.setTransactionSuccessful();
+            // Replaced rows are not known
+            rowDelta = orReplace ? RowCounter.UNKNOWN_DELTA : rows;
         } finally {
-            db.endTransaction();
+            endWrite(counted, rowDelta);
         }
+        onWriteSucceeded();
+        onEntitiesChanged(orReplace ? TableChange.INSERT | TableChange.UPDATE : TableChange.INSERT, entities);
+    }
+
+    /** Inserts a single row; the identity scope must be locked by the caller. */
+    private void executeInsertRow(SQLiteStatement stmt, T entity, boolean setPrimaryKey) {
+        bindValues(stmt, entity);
+        if (setPrimaryKey) {
+            long rowId = stmt.executeInsert();
+            updateKeyAfterInsertAndAttach(entity, rowId, false);
+        } else {
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Buffers entities to fill the largest batch size; must be called inside a TX.
+     * 
+     * @return number of inserted entities
+     */
+    private int executeInsertBatches(SQLiteStatement stmt, boolean orReplace, int[] batchSizes,
+            Iterable<T> entities, boolean setPrimaryKey) {
+        int maxRows = batchSizes[0];
+        List<T> batch = new ArrayList<T>(maxRows);
+        int rows = 0;
+        for (T entity : entities) {
+            rows++;
+            batch.add(entity);
+            if (batch.size() == maxRows) {
+                executeInsertBatch(stmt, orReplace, batchSizes, batch, setPrimaryKey);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            executeInsertBatch(stmt, orReplace, batchSizes, batch, setPrimaryKey);
+        }
+        return rows;
+    }
+
+    /**
+     * Inserts the given rows using the largest fitting multi-row statements; rows not filling the smallest batch size
+     * are inserted one by one.
+     */
+    private void executeInsertBatch(SQLiteStatement stmt, boolean orReplace, int[] batchSizes, List<T> rows,
+            boolean setPrimaryKey) {
+        int start = 0;
+        int count = rows.size();
+        for (int sizeIndex = 0; sizeIndex < batchSizes.length; sizeIndex++) {
+            int size = batchSizes[sizeIndex];
+            while (count - start >= size) {
+                SQLiteStatement batchStmt = statements.getInsertBatchStatement(sizeIndex, orReplace);
+                if (!setPrimaryKey || canDeriveRowIds(rows, start, size)) {
+                    executeMultiRowInsert(batchStmt, rows, start, size, setPrimaryKey);
+                } else {
+                    executeSingleRowInserts(stmt, rows, start, size, setPrimaryKey);
+                }
+                start += size;
+            }
+        }
+        if (start < count) {
+            executeSingleRowInserts(stmt, rows, start, count - start, setPrimaryKey);
+        }
+    }
+
+    private void executeMultiRowInsert(SQLiteStatement batchStmt, List<T> rows, int start, int size,
+            boolean setPrimaryKey) {
+        int columnCount = config.allColumns.length;
+        batchStmt.clearBindings();
+        for (int i = 0; i < size; i++) {
+            bindValues(batchStmt, rows.get(start + i), i * columnCount);
+        }
+        if (setPrimaryKey) {
+            long lastRowId = batchStmt.executeInsert();
+            if (identityScope != null) {
+                identityScope.lock();
+            }
+            try {
+                for (int i = 0; i < size; i++) {
+                    T entity = rows.get(start + i);
+                    long rowId = lastRowId != -1 ? deriveRowId(entity, lastRowId, size - 1 - i) : -1;
+                    updateKeyAfterInsertAndAttach(entity, rowId, false);
+                }
+            } finally {
+                if (identityScope != null) {
+                    identityScope.unlock();
+                }
+            }
+        } else {
+            batchStmt.execute();
+        }
+    }
+
+    private void executeSingleRowInserts(SQLiteStatement stmt, List<T> rows, int start, int size,
+            boolean setPrimaryKey) {
+        if (identityScope != null) {
+            identityScope.lock();
+        }
+        try {
+            for (int i = start; i < start + size; i++) {
+                executeInsertRow(stmt, rows.get(i), setPrimaryKey);
+            }
+        } finally {
+            if (identityScope != null) {
+                identityScope.unlock();
+            }
+        }
+    }
+
+    /**
+     * Row IDs of a multi-row insert can only be derived from last_insert_rowid() if SQLite assigns consecutive row IDs
+     * to all rows (no numeric key set) or if all rows bring their numeric key (which is the row ID).
+     */
+    private boolean canDeriveRowIds(List<T> rows, int start, int size) {
+        if (!config.keyIsNumeric) {
+            // Keys are not row IDs and are taken from the entity
+            return true;
+        }
+        int nullKeys = 0;
+        for (int i = start; i < start + size; i++) {
+            if (getKey(rows.get(i)) == null) {
+                nullKeys++;
+            }
+        }
+        return nullKeys == 0 || nullKeys == size;
+    }
+
+    private long deriveRowId(T entity, long lastRowId, int rowsAfter) {
+        if (config.keyIsNumeric) {
+            K key = getKey(entity);
+            if (key != null) {
+                return ((Number) key).longValue();
+            }
+        }
+        return lastRowId - rowsAfter;
     }
 
     /**
@@ -291,7 +670,7 @@ public abstract class AbstractDao<T, K> {
      * @return row ID of newly inserted entity
      */
     public long insert(T entity) {
-        return executeInsert(entity, statements.getInsertStatement());
+        return executeInsert(entity, false);
     }
 
     /**
@@ -301,25 +680,30 @@ public abstract class AbstractDao<T, K> {
      * @return row ID of newly inserted entity
      */
     public long insertWithoutSettingPk(T entity) {
-        SQLiteStatement stmt = statements.getInsertStatement();
+        return executeInsertCounted(entity, false);
+    }
+
+    /** Rows replaced by INSERT OR REPLACE are not known, so replacing marks the row count stale. */
+    private long executeInsertCounted(T entity, boolean orReplace) {
+        // A single statement does not need a TX; the statement belongs to this thread
+        boolean counted = beginWrite();
+        long rowDelta = RowCounter.UNKNOWN_DELTA;
         long rowId;
-        if (db.isDbLockedByCurrentThread()) {
-            synchronized (stmt) {
-                bindValues(stmt, entity);
-                rowId = stmt.executeInsert();
-            }
-        } else {
-            // Do TX to acquire a connection before locking the stmt to avoid deadlocks
-            db.beginTransaction();
-            try {
-                synchronized (stmt) {
-                    bindValues(stmt, entity);
-                    rowId = stmt.executeInsert();
-                }
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
+        try {
+            SQLiteStatement stmt = orReplace ? statements.getInsertOrReplaceStatement() : statements
+                    .getInsertStatement();
+            bindValues(stmt, entity);
+            rowId = stmt.executeInsert();
+            if (!orReplace) {
+                rowDelta = rowId != -1 ? 1 : 0;
             }
+        } finally {
+            endWrite(counted, rowDelta);
+        }
+        if (hasTableChangeListeners()) {
+            // The key may not be set in the entity yet
+            Object key = config.keyIsNumeric ? (rowId != -1 ? (Object) rowId : null) : getKey(entity);
+            onKeyChanged(orReplace ? TableChange.INSERT | TableChange.UPDATE : TableChange.INSERT, key);
         }
         return rowId;
     }
@@ -330,37 +714,140 @@ public abstract class AbstractDao<T, K> {
      * @return row ID of newly inserted entity
      */
     public long insertOrReplace(T entity) {
-        return executeInsert(entity, statements.getInsertOrReplaceStatement());
+        return executeInsert(entity, true);
     }
 
-    private long executeInsert(T entity, SQLiteStatement stmt) {
-        long rowId;
-        if (db.isDbLockedByCurrentThread()) {
-            synchronized (stmt) {
-                bindValues(stmt, entity);
-                rowId = stmt.executeInsert();
+    private long executeInsert(T entity, boolean orReplace) {
+        long rowId = executeInsertCounted(entity, orReplace);
+        updateKeyAfterInsertAndAttach(entity, rowId, true);
+        onWriteSucceeded();
+        return rowId;
+    }
+
+    /**
+     * Inserts the entity or, if a row with the same conflict key exists, updates that row. The conflict key is the PK
+     * unless the generator configured a unique index (see {@link #getUpsertConflictColumns()}). Unlike
+     * {@link #insertOrReplace(Object)}, existing rows are not deleted and re-inserted, so they keep their row ID, index
+     * entries of unchanged columns stay untouched, and no ON DELETE actions are triggered.<br/>
+     * Uses INSERT ... ON CONFLICT DO UPDATE if supported by SQLite; otherwise an UPDATE followed by an INSERT if no row
+     * was updated, both in one transaction.
+     */
+    public void upsert(T entity) {
+        String[] conflictColumns = getUpsertConflictColumnsVerified();
+        // Whether rows were inserted or updated is not tracked
+        boolean counted = beginWrite();
+        try {
+            if (db.isDbLockedByCurrentThread()) {
+                upsertInsideTx(entity, conflictColumns);
+            } else {
+                db.beginTransaction();
+                try {
+                    upsertInsideTx(entity, conflictColumns);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
-        } else {
-            // Do TX to acquire a connection before locking the stmt to avoid deadlocks
+        } finally {
+            endWrite(counted, RowCounter.UNKNOWN_DELTA);
+        }
+        onWriteSucceeded();
+        onEntityChanged(TableChange.INSERT | TableChange.UPDATE, entity);
+    }
+
+    /**
+     * Upserts the given entities in the database using a transaction (see {@link #upsert(Object)}).
+     * 
+     * @param entities
+     *            The entities to upsert.
+     */
+    public void upsertInTx(Iterable<T> entities) {
+        String[] conflictColumns = getUpsertConflictColumnsVerified();
+        boolean counted = beginWrite();
+        try {
             db.beginTransaction();
             try {
-                synchronized (stmt) {
-                    bindValues(stmt, entity);
-                    rowId = stmt.executeInsert();
+                for (T entity : entities) {
+                    upsertInsideTx(entity, conflictColumns);
                 }
                 db.setTransactionSuccessful();
             } finally {
                 db.endTransaction();
             }
+        } finally {
+            endWrite(counted, RowCounter.UNKNOWN_DELTA);
+        }
+        onWriteSucceeded();
+        onEntitiesChanged(TableChange.INSERT | TableChange.UPDATE, entities);
+    }
+
+    /**
+     * Upserts the given entities in the database using a transaction (see {@link #upsert(Object)}).
+     * 
+     * @param entities
+     *            The entities to upsert.
+     */
+    @SuppressWarnings("unchecked")
+    public void upsertInTx(T... entities) {
+        upsertInTx(Arrays.asList(entities));
+    }
+
+    private String[] getUpsertConflictColumnsVerified() {
+        String[] conflictColumns = getUpsertConflictColumns();
+        if (Arrays.equals(conflictColumns, config.pkColumns)) {
+            assertSinglePk();
+        }
+        return conflictColumns;
+    }
+
+    /** Must be called inside a TX; the identity scope is locked only to attach the entity. */
+    private void upsertInsideTx(T entity, String[] conflictColumns) {
+        K key = getKey(entity);
+        // The row ID reported for an upsert that updated an existing row is not reliable, so numeric keys must be known
+        boolean keyKnown = key != null || !config.keyIsNumeric;
+        boolean conflictOnPk = Arrays.equals(conflictColumns, config.pkColumns);
+        if (statements.isUpsertSupported() && (keyKnown || conflictOnPk)) {
+            SQLiteStatement stmt = statements.getUpsertStatement(conflictColumns);
+            bindValues(stmt, entity);
+            long rowId = stmt.executeInsert();
+            if (keyKnown) {
+                attachWrittenEntity(key, entity, true);
+            } else {
+                // Without PK, the row could not conflict on the PK and was inserted
+                updateKeyAfterInsertAndAttach(entity, rowId, true);
+            }
+            return;
+        }
+
+        SQLiteStatement updateStmt = statements.getUpsertUpdateStatement(conflictColumns);
+        bindValues(updateStmt, entity);
+        bindUpsertConflictValues(updateStmt, entity, config.allColumns.length);
+        int updated = DbUtils.executeUpdateDelete(db, updateStmt);
+        if (updated == 0) {
+            SQLiteStatement insertStmt = statements.getInsertStatement();
+            bindValues(insertStmt, entity);
+            long rowId = insertStmt.executeInsert();
+            if (keyKnown) {
+                attachWrittenEntity(key, entity, true);
+            } else {
+                updateKeyAfterInsertAndAttach(entity, rowId, true);
+            }
+        } else if (keyKnown) {
+            attachWrittenEntity(key, entity, true);
+        } else {
+            // Updated the row matching the unique index; take over its key
+            SQLiteStatement selectStmt = statements.getSelectKeyByConflictStatement(conflictColumns);
+            selectStmt.clearBindings();
+            bindUpsertConflictValues(selectStmt, entity, 0);
+            long rowId = selectStmt.simpleQueryForLong();
+            updateKeyAfterInsertAndAttach(entity, rowId, true);
         }
-        updateKeyAfterInsertAndAttach(entity, rowId, true);
-        return rowId;
     }
 
     protected void updateKeyAfterInsertAndAttach(T entity, long rowId, boolean lock) {
         if (rowId != -1) {
             K key = updateKeyAfterInsert(entity, rowId);
-            attachEntity(key, entity, lock);
+            attachWrittenEntity(key, entity, lock);
         } else {
             // TODO When does this actually happen? Should we throw instead?
             DaoLog.w("Could not insert row (executeInsert returned -1)");
@@ -371,16 +858,7 @@ public abstract class AbstractDao<T, K> {
     protected List<T> loadAllFromCursor(Cursor cursor) {
         int count = cursor.getCount();
         List<T> list = new ArrayList<T>(count);
-        if (cursor instanceof CrossProcessCursor) {
-            CursorWindow window = ((CrossProcessCursor) cursor).getWindow();
-            if (window != null) { // E.g. Roboelectric has no Window at this point
-                if (window.getNumRows() == count) {
-                    cursor = new FastCursor(window);
-                } else {
-                    DaoLog.d("Window vs. result size: " + window.getNumRows() + "/" + count);
-                }
-            }
-        }
+        cursor = toFastCursorIfPossible(cursor);
 
         if (cursor.moveToFirst()) {
             if (identityScope != null) {
@@ -400,6 +878,22 @@ public abstract class AbstractDao<T, K> {
         return list;
     }
 
+    /** Returns a FastCursor if the cursor's window holds all rows; otherwise the given cursor. */
+    private Cursor toFastCursorIfPossible(Cursor cursor) {
+        if (cursor instanceof CrossProcessCursor) {
+            CursorWindow window = ((CrossProcessCursor) cursor).getWindow();
+            if (window != null) { // E.g. Roboelectric has no Window at this point
+                int count = cursor.getCount();
+                if (window.getNumRows() == count) {
+                    return new FastCursor(window);
+                } else {
+                    DaoLog.d("Window vs. result size: " + window.getNumRows() + "/" + count);
+                }
+            }
+        }
+        return cursor;
+    }
+
     /** Internal use only. Considers identity scope. */
     final protected T loadCurrent(Cursor cursor, int offset, boolean lock) {
         if (identityScopeLong != null) {
@@ -453,6 +947,20 @@ public abstract class AbstractDao<T, K> {
         }
     }
 
+    /**
+     * Internal use only. Reads the current row bypassing the identity scope. The given entity is overwritten if not null
+     * and entities are updateable (not protobuf); otherwise a new entity is created.
+     */
+    final T loadCurrentRecycled(Cursor cursor, int offset, T recycled) {
+        if (recycled != null && isEntityUpdateable()) {
+            readEntity(cursor, recycled, offset);
+            return recycled;
+        }
+        T entity = readEntity(cursor, offset);
+        attachEntity(entity);
+        return entity;
+    }
+
     /** Internal use only. Considers identity scope. */
     final protected <O> O loadCurrentOther(AbstractDao<O, ?> dao, Cursor cursor, int offset) {
         return dao.loadCurrent(cursor, offset, /* TODO check this */true);
@@ -485,7 +993,13 @@ public abstract class AbstractDao<T, K> {
         // String sql = SqlUtils.createSqlDelete(config.tablename, null);
         // db.execSQL(sql);
 
-        db.execSQL("DELETE FROM '" + config.tablename + "'");
+        boolean counted = beginWrite();
+        try {
+            db.execSQL("DELETE FROM '" + config.tablename + "'");
+        } finally {
+            endWrite(counted, RowCounter.UNKNOWN_DELTA);
+        }
+        onTableChanged(TableChange.DELETE);
         if (identityScope != null) {
             identityScope.clear();
         }
@@ -501,29 +1015,21 @@ public abstract class AbstractDao<T, K> {
     /** Deletes an entity with the given PK from the database. Currently, only single value PK entities are supported. */
     public void deleteByKey(K key) {
         assertSinglePk();
-        SQLiteStatement stmt = statements.getDeleteStatement();
-        if (db.isDbLockedByCurrentThread()) {
-            synchronized (stmt) {
-                deleteByKeyInsideSynchronized(key, stmt);
-            }
-        } else {
-            // Do TX to acquire a connection before locking the stmt to avoid deadlocks
-            db.beginTransaction();
-            try {
-                synchronized (stmt) {
-                    deleteByKeyInsideSynchronized(key, stmt);
-                }
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
-            }
+        boolean counted = beginWrite();
+        long rowDelta = RowCounter.UNKNOWN_DELTA;
+        try {
+            rowDelta = -deleteByKey(key, statements.getDeleteStatement(), counted);
+        } finally {
+            endWrite(counted, rowDelta);
         }
+        onKeyChanged(TableChange.DELETE, key);
         if (identityScope != null) {
             identityScope.remove(key);
         }
     }
 
-    private void deleteByKeyInsideSynchronized(K key, SQLiteStatement stmt) {
+    /** @return number of deleted rows if countRows is set, 0 otherwise */
+    private int deleteByKey(K key, SQLiteStatement stmt, boolean countRows) {
         if (key instanceof Long) {
             stmt.bindLong(1, (Long) key);
         } else if (key == null) {
@@ -531,51 +1037,116 @@ public abstract class AbstractDao<T, K> {
         } else {
             stmt.bindString(1, key.toString());
         }
-        stmt.execute();
+        if (countRows) {
+            return DbUtils.executeUpdateDelete(db, stmt);
+        } else {
+            stmt.execute();
+            return 0;
+        }
     }
 
+    /**
+     * Deletes using "WHERE pk IN (...)" statements of cached chunk sizes (padded by repeating the last key). Numeric
+     * keys are collected in a long array; the identity scope is updated in bulk.
+     */
     private void deleteInTxInternal(Iterable<T> entities, Iterable<K> keys) {
         assertSinglePk();
-        SQLiteStatement stmt = statements.getDeleteStatement();
-        List<K> keysToRemoveFromIdentityScope = null;
+        boolean useLongKeys = config.keyIsNumeric && (identityScope == null || identityScopeLong != null);
+        long[] longKeys = useLongKeys ? new long[64] : null;
+        List<K> objectKeys = useLongKeys ? null : new ArrayList<K>();
+        int count = 0;
+        if (entities != null) {
+            for (T entity : entities) {
+                K key = getKeyVerified(entity);
+                if (longKeys != null) {
+                    longKeys = appendLongKey(longKeys, count, ((Number) key).longValue());
+                } else {
+                    objectKeys.add(key);
+                }
+                count++;
+            }
+        }
+        if (keys != null) {
+            for (K key : keys) {
+                if (key == null) {
+                    throw new DaoException("Cannot delete entity, key is null");
+                }
+                if (longKeys != null) {
+                    longKeys = appendLongKey(longKeys, count, ((Number) key).longValue());
+                } else {
+                    objectKeys.add(key);
+                }
+                count++;
+            }
+        }
+
+        boolean counted = beginWrite();
+        long rowDelta = RowCounter.UNKNOWN_DELTA;
+        try {
+            int deleted = deleteByKeysInTx(longKeys, objectKeys, count, counted);
+            rowDelta = -deleted;
+        } finally {
+            endWrite(counted, rowDelta);
+        }
+        TableChangeBus bus = getObservedChangeBus();
+        if (bus != null) {
+            TableChange change = bus.getPendingChange(config.tablename);
+            for (int i = 0; i < count; i++) {
+                change.add(TableChange.DELETE, longKeys != null ? (Object) longKeys[i] : objectKeys.get(i));
+            }
+            bus.publishIfOutsideTx();
+        }
+    }
+
+    /** @return number of deleted rows if countRows is set, 0 otherwise */
+    private int deleteByKeysInTx(long[] longKeys, List<K> objectKeys, int count, boolean countRows) {
+        int deleted = 0;
         db.beginTransaction();
         try {
-            synchronized (stmt) {
-                if (identityScope != null) {
-                    identityScope.lock();
-                    keysToRemoveFromIdentityScope = new ArrayList<K>();
-                }
-                try {
-                    if (entities != null) {
-                        for (T entity : entities) {
-                            K key = getKeyVerified(entity);
-                            deleteByKeyInsideSynchronized(key, stmt);
-                            if (keysToRemoveFromIdentityScope != null) {
-                                keysToRemoveFromIdentityScope.add(key);
-                            }
-                        }
-                    }
-                    if (keys != null) {
-                        for (K key : keys) {
-                            deleteByKeyInsideSynchronized(key, stmt);
-                            if (keysToRemoveFromIdentityScope != null) {
-                                keysToRemoveFromIdentityScope.add(key);
-                            }
+            for (int start = 0; start < count;) {
+                int chunkSize = TableStatements.getKeysChunkSize(count - start);
+                int end = Math.min(start + chunkSize, count);
+                SQLiteStatement stmt = statements.getDeleteByKeysStatement(chunkSize);
+                for (int i = 0; i < chunkSize; i++) {
+                    int keyIndex = Math.min(start + i, end - 1);
+                    if (longKeys != null) {
+                        stmt.bindLong(i + 1, longKeys[keyIndex]);
+                    } else {
+                        K key = objectKeys.get(keyIndex);
+                        if (key instanceof Long) {
+                            stmt.bindLong(i + 1, (Long) key);
+                        } else {
+                            stmt.bindString(i + 1, key.toString());
                         }
                     }
-                } finally {
-                    if (identityScope != null) {
-                        identityScope.unlock();
-                    }
                 }
+                if (countRows) {
+                    deleted += DbUtils.executeUpdateDelete(db, stmt);
+                } else {
+                    stmt.execute();
+                }
+                start = end;
             }
             db.setTransactionSuccessful();
-            if (keysToRemoveFromIdentityScope != null && identityScope != null) {
-                identityScope.remove(keysToRemoveFromIdentityScope);
+            if (identityScopeLong != null && longKeys != null) {
+                identityScopeLong.remove2(longKeys, count);
+            } else if (identityScope != null) {
+                identityScope.remove(objectKeys);
             }
         } finally {
             db.endTransaction();
         }
+        return deleted;
+    }
+
+    private static long[] appendLongKey(long[] keys, int count, long key) {
+        if (count == keys.length) {
+            long[] grown = new long[count * 2];
+            System.arraycopy(keys, 0, grown, 0, count);
+            keys = grown;
+        }
+        keys[count] = key;
+        return keys;
     }
 
     /**
@@ -618,6 +1189,11 @@ public abstract class AbstractDao<T, K> {
         deleteInTxInternal(null, Arrays.asList(keys));
     }
 
+    /** Snapshot of the identity scope's statistics, or null if the DAO has no identity scope. */
+    public IdentityScopeStats getIdentityScopeStats() {
+        return identityScope != null ? identityScope.getStats() : null;
+    }
+
     /** Resets all locally changed properties of the entity by reloading the values from the database. */
     public void refresh(T entity) {
         assertSinglePk();
@@ -642,33 +1218,45 @@ public abstract class AbstractDao<T, K> {
 
     public void update(T entity) {
         assertSinglePk();
-        SQLiteStatement stmt = statements.getUpdateStatement();
-        if (db.isDbLockedByCurrentThread()) {
-            synchronized (stmt) {
-                updateInsideSynchronized(entity, stmt, true);
-            }
-        } else {
-            // Do TX to acquire a connection before locking the stmt to avoid deadlocks
-            db.beginTransaction();
-            try {
-                synchronized (stmt) {
-                    updateInsideSynchronized(entity, stmt, true);
-                }
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
-            }
+        if (getDirtyColumnsToUpdate(entity) == 0) {
+            // Nothing was modified since the entity was loaded or saved
+            attachEntity(getKeyVerified(entity), entity, true);
+            return;
         }
+        boolean counted = beginWrite();
+        try {
+            updateInsideSynchronized(entity, statements.getUpdateStatement(), true);
+        } finally {
+            endWrite(counted, 0);
+        }
+        onWriteSucceeded();
+        onEntityChanged(TableChange.UPDATE, entity);
     }
 
     public QueryBuilder<T> queryBuilder() {
         return QueryBuilder.internalCreate(this);
     }
 
+    /**
+     * Updates the entity using the given (full) update statement of the calling thread. For dirty tracking entities only
+     * the modified columns are written using a partial update statement.
+     */
     protected void updateInsideSynchronized(T entity, SQLiteStatement stmt, boolean lock) {
-        // To do? Check if it's worth not to bind PKs here (performance).
-        bindValues(stmt, entity);
-        int index = config.allColumns.length + 1;
+        long dirtyColumns = getDirtyColumnsToUpdate(entity);
+        if (dirtyColumns == 0) {
+            attachEntity(getKeyVerified(entity), entity, lock);
+            return;
+        }
+        int index;
+        if (dirtyColumns == ALL_COLUMNS) {
+            // To do? Check if it's worth not to bind PKs here (performance).
+            bindValues(stmt, entity);
+            index = config.allColumns.length + 1;
+        } else {
+            stmt = statements.getUpdateStatement(dirtyColumns);
+            bindDirtyValues(stmt, entity, dirtyColumns);
+            index = Long.bitCount(dirtyColumns) + 1;
+        }
         K key = getKey(entity);
         if (key instanceof Long) {
             stmt.bindLong(index, (Long) key);
@@ -678,7 +1266,24 @@ public abstract class AbstractDao<T, K> {
             stmt.bindString(index, key.toString());
         }
         stmt.execute();
-        attachEntity(key, entity, lock);
+        attachWrittenEntity(key, entity, lock);
+    }
+
+    /**
+     * Non-PK columns to write when updating the entity: {@link #ALL_COLUMNS} without dirty tracking or if all of them
+     * were modified, 0 if none was modified.
+     */
+    private long getDirtyColumnsToUpdate(T entity) {
+        if (!isDirtyTrackingSupported()) {
+            return ALL_COLUMNS;
+        }
+        int columnCount = config.allColumns.length;
+        long nonPkColumns = columnCount == 64 ? ALL_COLUMNS : (1L << columnCount) - 1;
+        if (pkOrdinal >= 0) {
+            nonPkColumns &= ~(1L << pkOrdinal);
+        }
+        long dirtyColumns = getDirtyProperties(entity) & nonPkColumns;
+        return dirtyColumns == nonPkColumns ? ALL_COLUMNS : dirtyColumns;
     }
 
     /**
@@ -700,6 +1305,38 @@ public abstract class AbstractDao<T, K> {
         }
     }
 
+    /**
+     * Attaches an entity after its row was written; its dirty flags are reset only once the write is committed, so
+     * entities of rolled back writes are written again by the next update.
+     */
+    private void attachWrittenEntity(K key, T entity, boolean lock) {
+        attachEntity(key, entity, lock);
+        if (isDirtyTrackingSupported()) {
+            writtenEntities.get().add(entity);
+        }
+    }
+
+    /**
+     * Must be called after a write and its own TX succeeded. Outside of a TX, the written entities reflect their rows
+     * now; inside an enclosing TX, resetting their dirty flags is deferred until the TX ended (see
+     * {@link #onForeignTxEnded(boolean)}).
+     */
+    private void onWriteSucceeded() {
+        if (isDirtyTrackingSupported() && !db.inTransaction()) {
+            resetWrittenEntities(true);
+        }
+    }
+
+    private void resetWrittenEntities(boolean committed) {
+        List<T> entities = writtenEntities.get();
+        if (committed) {
+            for (T entity : entities) {
+                resetDirtyProperties(entity);
+            }
+        }
+        entities.clear();
+    }
+
     /**
      * Sub classes with relations additionally set the DaoMaster here. Must be called before the entity is attached to
      * the identity scope.
@@ -717,10 +1354,11 @@ public abstract class AbstractDao<T, K> {
      *            The entities to insert.
      */
     public void updateInTx(Iterable<T> entities) {
-        SQLiteStatement stmt = statements.getUpdateStatement();
-        db.beginTransaction();
+        boolean counted = beginWrite();
         try {
-            synchronized (stmt) {
+            db.beginTransaction();
+            try {
+                SQLiteStatement stmt = statements.getUpdateStatement();
                 if (identityScope != null) {
                     identityScope.lock();
                 }
@@ -733,11 +1371,15 @@ public abstract class AbstractDao<T, K> {
                         identityScope.unlock();
                     }
                 }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
             }
-            db.setTransactionSuccessful();
         } finally {
-            db.endTransaction();
+            endWrite(counted, 0);
         }
+        onWriteSucceeded();
+        onEntitiesChanged(TableChange.UPDATE, entities);
     }
 
     /**
@@ -756,10 +1398,133 @@ public abstract class AbstractDao<T, K> {
         }
     }
 
+    /**
+     * Number of rows in the table. Counts all rows unless a {@link RowCountMode} was set for the DAO, which makes this
+     * O(1) while the count is known.
+     */
     public long count() {
+        if (rowCounter != null) {
+            return rowCounter.getCount();
+        }
         return DatabaseUtils.queryNumEntries(db, '\'' + config.tablename + '\'');
     }
 
+    /**
+     * Marks the row count stale after the table was changed bypassing this DAO (raw SQL, other processes). Only needed
+     * for {@link RowCountMode#InMemory}.
+     */
+    public void invalidateRowCount() {
+        if (rowCounter != null) {
+            rowCounter.invalidate();
+        }
+    }
+
+    /** Called by the session after a TX not started by the DAO ended. */
+    void onForeignTxEnded(boolean committed) {
+        if (isDirtyTrackingSupported() && !db.inTransaction()) {
+            // Only the outermost TX decides whether the deferred writes persist
+            resetWrittenEntities(committed);
+        }
+        tableVersion.onForeignTxEnded();
+        if (rowCounter != null) {
+            rowCounter.onForeignTxEnded();
+        }
+    }
+
+    /** The session's change bus if a listener is registered, null otherwise. */
+    private TableChangeBus getObservedChangeBus() {
+        AbstractDaoSession daoSession = session;
+        if (daoSession != null) {
+            TableChangeBus bus = daoSession.getTableChangeBus();
+            if (bus.hasListeners()) {
+                return bus;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasTableChangeListeners() {
+        return getObservedChangeBus() != null;
+    }
+
+    /**
+     * Publishes a change of unknown rows, or collects it if called inside a TX (see {@link TableChangeBus}). Must be
+     * called after the write succeeded and its own TX ended.
+     */
+    void onTableChanged(int type) {
+        TableChangeBus bus = getObservedChangeBus();
+        if (bus != null) {
+            bus.getPendingChange(config.tablename).addUnknownKeys(type);
+            bus.publishIfOutsideTx();
+        }
+    }
+
+    /** Like {@link #onTableChanged(int)} for a single row; a null key marks the rows unknown. */
+    private void onKeyChanged(int type, Object key) {
+        TableChangeBus bus = getObservedChangeBus();
+        if (bus != null) {
+            bus.getPendingChange(config.tablename).add(type, key);
+            bus.publishIfOutsideTx();
+        }
+    }
+
+    private void onEntityChanged(int type, T entity) {
+        if (hasTableChangeListeners()) {
+            onKeyChanged(type, getKey(entity));
+        }
+    }
+
+    /** Iterates over the entities again to collect their keys. */
+    private void onEntitiesChanged(int type, Iterable<T> entities) {
+        TableChangeBus bus = getObservedChangeBus();
+        if (bus != null) {
+            TableChange change = bus.getPendingChange(config.tablename);
+            for (T entity : entities) {
+                change.add(type, getKey(entity));
+            }
+            bus.publishIfOutsideTx();
+        }
+    }
+
+    TableVersion getTableVersion() {
+        return tableVersion;
+    }
+
+    /**
+     * Must be called before a write and its TX, and be followed by {@link #endWrite(boolean, long)}; see
+     * {@link TableVersion#beginWrite()} and {@link RowCounter#beginWrite()}.
+     * 
+     * @return true if the row count is tracked for this write
+     */
+    boolean beginWrite() {
+        if (isDirtyTrackingSupported() && !db.inTransaction()) {
+            // Left over by failed writes or TXs started directly on the database; those entities stay dirty
+            writtenEntities.get().clear();
+        }
+        tableVersion.beginWrite();
+        boolean counted = rowCounter != null && rowCounter.beginWrite();
+        // Compiled statements of this thread may only be used inside the write
+        statements.beginUse();
+        return counted;
+    }
+
+    /** Must be called after the write and its TX ended, also if it failed. */
+    void endWrite(boolean counted, long rowDelta) {
+        statements.endUse();
+        tableVersion.endWrite();
+        if (counted) {
+            rowCounter.endWrite(rowDelta);
+        } else if (rowCounter != null) {
+            rowCounter.endUncountedWrite(rowDelta);
+        }
+        AbstractDaoSession daoSession = session;
+        QueryCache queryCache = daoSession != null ? daoSession.getQueryCache() : null;
+        if (queryCache != null) {
+            // Other sessions' caches notice the new table version on access
+            queryCache.invalidate(config.tablename);
+        }
+    }
+
     /** See {@link #getKey(Object)}, but guarantees that the returned key is never null (throws if null). */
     protected K getKeyVerified(T entity) {
         K key = getKey(entity);
@@ -791,6 +1556,63 @@ public abstract class AbstractDao<T, K> {
     /** Binds the entity's values to the statement. Make sure to synchronize the statement outside of the method. */
     abstract protected void bindValues(SQLiteStatement stmt, T entity);
 
+    /**
+     * Binds the entity's values to the statement, starting after the given parameter offset and without clearing
+     * bindings. Used for multi-row inserts if {@link #isBatchBindingSupported()}. Make sure to synchronize the
+     * statement outside of the method.
+     */
+    protected void bindValues(SQLiteStatement stmt, T entity, int offset) {
+        throw new UnsupportedOperationException("Binding with offset is not supported by " + this);
+    }
+
+    /** Returns true if the DAO implements {@link #bindValues(SQLiteStatement, Object, int)}. */
+    protected boolean isBatchBindingSupported() {
+        return false;
+    }
+
+    /**
+     * Columns identifying existing rows for upserts: the PK columns, unless the generator configured a unique index
+     * (sub classes then also override {@link #bindUpsertConflictValues(SQLiteStatement, Object, int)}).
+     */
+    protected String[] getUpsertConflictColumns() {
+        return config.pkColumns;
+    }
+
+    /** Binds the values of the upsert conflict columns starting at index offset + 1; by default the (single) PK. */
+    protected void bindUpsertConflictValues(SQLiteStatement stmt, T entity, int offset) {
+        K key = getKey(entity);
+        if (key instanceof Long) {
+            stmt.bindLong(offset + 1, (Long) key);
+        } else if (key == null) {
+            stmt.bindNull(offset + 1);
+        } else {
+            stmt.bindString(offset + 1, key.toString());
+        }
+    }
+
+    /**
+     * Dirty tracking entities record which properties were modified since the entity was loaded or saved, so updates
+     * only write modified columns. Sub classes returning true implement {@link #getDirtyProperties(Object)},
+     * {@link #resetDirtyProperties(Object)}, and {@link #bindDirtyValues(SQLiteStatement, Object, long)}.
+     */
+    protected boolean isDirtyTrackingSupported() {
+        return false;
+    }
+
+    /** Bit mask of properties (by ordinal) modified since the entity was loaded or saved. */
+    protected long getDirtyProperties(T entity) {
+        return ALL_COLUMNS;
+    }
+
+    /** Marks all properties unmodified, e.g. after the entity was loaded or saved. */
+    protected void resetDirtyProperties(T entity) {
+    }
+
+    /** Binds the properties of the given mask (in ordinal order, starting at index 1) for a partial update. */
+    protected void bindDirtyValues(SQLiteStatement stmt, T entity, long dirtyProperties) {
+        throw new UnsupportedOperationException("Dirty tracking is not supported by " + getClass().getSimpleName());
+    }
+
     /**
      * Updates the entity's key if possible (only for Long PKs currently). This method must always return the entity's
      * key regardless of whether the key existed before or not.
@@ -46,6 +46,30 @@ public abstract class AbstractDaoMaster {
         daoConfigMap.put(daoClass, daoConfig);
     }
 
+    /**
+     * Sets how {@link AbstractDao#count()} gets the row count of the given DAO's table (see {@link RowCountMode}). Must
+     * be called before sessions are created.
+     */
+    public void setRowCountMode(Class<? extends AbstractDao<?, ?>> daoClass, RowCountMode mode) {
+        getDaoConfigVerified(daoClass).initRowCountMode(mode);
+    }
+
+    /**
+     * Sets how many recently used entities of the given DAO are kept strongly referenced by sessions created with
+     * {@link IdentityScopeType#SessionLru}. Must be called before those sessions are created.
+     */
+    public void setIdentityScopeCapacity(Class<? extends AbstractDao<?, ?>> daoClass, int capacity) {
+        getDaoConfigVerified(daoClass).setIdentityScopeCapacity(capacity);
+    }
+
+    private DaoConfig getDaoConfigVerified(Class<? extends AbstractDao<?, ?>> daoClass) {
+        DaoConfig daoConfig = daoConfigMap.get(daoClass);
+        if (daoConfig == null) {
+            throw new DaoException("No DAO registered for " + daoClass);
+        }
+        return daoConfig;
+    }
+
     public int getSchemaVersion() {
         return schemaVersion;
     }
@@ -18,12 +18,19 @@ package com.sea_monster.dao;
 import android.database.sqlite.SQLiteDatabase;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.Callable;
 
 import com.sea_monster.dao.async.AsyncSession;
+import com.sea_monster.dao.identityscope.IdentityScopeStats;
+import com.sea_monster.dao.identityscope.IdentityScopeStatsListener;
 import com.sea_monster.dao.query.QueryBuilder;
+import com.sea_monster.dao.query.QueryCache;
 
 /**
  * DaoSession gives you access to your DAOs, offers convenient persistence methods, and also serves as a session cache.<br/>
@@ -47,10 +54,14 @@ import com.sea_monster.dao.query.QueryBuilder;
 public class AbstractDaoSession {
     private final SQLiteDatabase db;
     private final Map<Class<?>, AbstractDao<?, ?>> entityToDao;
+    private final TableChangeBus tableChangeBus;
+    private volatile QueryCache queryCache;
+    private Timer statsTimer;
 
     public AbstractDaoSession(SQLiteDatabase db) {
         this.db = db;
         this.entityToDao = new HashMap<Class<?>, AbstractDao<?, ?>>();
+        tableChangeBus = new TableChangeBus(db);
     }
 
     protected <T> void registerDao(Class<T> entityClass, AbstractDao<T, ?> dao) {
@@ -71,6 +82,14 @@ public class AbstractDaoSession {
         return dao.insertOrReplace(entity);
     }
 
+    /** Convenient call for {@link AbstractDao#insertInChunks(Iterator, int, long, InsertProgressListener)}. */
+    public <T> long insertInChunks(Class<T> entityClass, Iterator<T> entities, int maxChunkRows, long maxChunkMillis,
+            InsertProgressListener listener) {
+        @SuppressWarnings("unchecked")
+        AbstractDao<T, ?> dao = (AbstractDao<T, ?>) getDao(entityClass);
+        return dao.insertInChunks(entities, maxChunkRows, maxChunkMillis, listener);
+    }
+
     /** Convenient call for {@link AbstractDao#refresh(Object)}. */
     public <T> void refresh(T entity) {
         @SuppressWarnings("unchecked")
@@ -139,12 +158,15 @@ public class AbstractDaoSession {
      * Run the given Runnable inside a database transaction. If you except a result, consider callInTx.
      */
     public void runInTx(Runnable runnable) {
+        boolean committed = false;
         db.beginTransaction();
         try {
             runnable.run();
             db.setTransactionSuccessful();
+            committed = true;
         } finally {
             db.endTransaction();
+            onTxEnded(committed);
         }
     }
 
@@ -153,13 +175,16 @@ public class AbstractDaoSession {
      * except a result, consider runInTx.
      */
     public <V> V callInTx(Callable<V> callable) throws Exception {
+        boolean committed = false;
         db.beginTransaction();
         try {
             V result = callable.call();
             db.setTransactionSuccessful();
+            committed = true;
             return result;
         } finally {
             db.endTransaction();
+            onTxEnded(committed);
         }
     }
 
@@ -168,6 +193,7 @@ public class AbstractDaoSession {
      * DaoException).
      */
     public <V> V callInTxNoException(Callable<V> callable) {
+        boolean committed = false;
         db.beginTransaction();
         try {
             V result;
@@ -177,9 +203,99 @@ public class AbstractDaoSession {
                 throw new DaoException("Callable failed", e);
             }
             db.setTransactionSuccessful();
+            committed = true;
             return result;
         } finally {
             db.endTransaction();
+            onTxEnded(committed);
+        }
+    }
+
+    /**
+     * DAO writes inside the TX may have marked their row counts stale and collected table changes; the outcome of the
+     * TX is known now. Also called by async sessions after merged TXs.
+     */
+    void onTxEnded(boolean committed) {
+        for (AbstractDao<?, ?> dao : entityToDao.values()) {
+            dao.onForeignTxEnded(committed);
+        }
+        tableChangeBus.onTxEnded(committed);
+    }
+
+    /**
+     * Registers a listener notified once per committed transaction about the tables written through this session (see
+     * {@link TableChangeBus}).
+     * 
+     * @param tablenames
+     *            tables to observe; all tables if none is given
+     */
+    public void addTableChangeListener(TableChangeListener listener, String... tablenames) {
+        tableChangeBus.addListener(listener, tablenames);
+    }
+
+    public void removeTableChangeListener(TableChangeListener listener) {
+        tableChangeBus.removeListener(listener);
+    }
+
+    public TableChangeBus getTableChangeBus() {
+        return tableChangeBus;
+    }
+
+    /**
+     * Enables caching results of {@link com.sea_monster.dao.query.Query#list()},
+     * {@link com.sea_monster.dao.query.Query#unique()}, and {@link com.sea_monster.dao.query.CountQuery#count()} in this
+     * session; see {@link QueryCache} for details. Replaces a previously enabled cache.
+     * 
+     * @return the new cache, e.g. to check its hit rate
+     */
+    public QueryCache enableQueryCache(int maxEntries, int maxRows) {
+        QueryCache cache = new QueryCache(maxEntries, maxRows);
+        queryCache = cache;
+        return cache;
+    }
+
+    public void disableQueryCache() {
+        queryCache = null;
+    }
+
+    /** The query result cache, or null if it is not enabled. */
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
+    /** Snapshots of the identity scope statistics per entity class; DAOs without identity scope are left out. */
+    public Map<Class<?>, IdentityScopeStats> getIdentityScopeStats() {
+        Map<Class<?>, IdentityScopeStats> statsByEntity = new LinkedHashMap<Class<?>, IdentityScopeStats>();
+        for (Map.Entry<Class<?>, AbstractDao<?, ?>> entry : entityToDao.entrySet()) {
+            IdentityScopeStats stats = entry.getValue().getIdentityScopeStats();
+            if (stats != null) {
+                statsByEntity.put(entry.getKey(), stats);
+            }
+        }
+        return statsByEntity;
+    }
+
+    /**
+     * Reports the identity scope statistics to the given listener in the given period until
+     * {@link #stopIdentityScopeStatsReporting()} is called. Replaces a previously started reporting.
+     */
+    public synchronized void startIdentityScopeStatsReporting(final IdentityScopeStatsListener listener,
+            long periodMillis) {
+        stopIdentityScopeStatsReporting();
+        statsTimer = new Timer("greenDAO identity scope stats", true);
+        statsTimer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                Map<Class<?>, IdentityScopeStats> statsByEntity = getIdentityScopeStats();
+                listener.onIdentityScopeStats(statsByEntity, IdentityScopeStats.sum(statsByEntity.values()));
+            }
+        }, periodMillis, periodMillis);
+    }
+
+    public synchronized void stopIdentityScopeStatsReporting() {
+        if (statsTimer != null) {
+            statsTimer.cancel();
+            statsTimer = null;
         }
     }
 
@@ -20,6 +20,8 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -123,6 +125,39 @@ public class DbUtils {
         }
     }
 
+    /**
+     * Queries the version of the SQLite library backing the given database.
+     * 
+     * @return version number encoded like SQLITE_VERSION_NUMBER, e.g. 3007011 for 3.7.11
+     */
+    public static int querySqliteVersion(SQLiteDatabase db) {
+        String version = DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null);
+        String[] parts = version.split("\\.");
+        int number = 0;
+        for (int i = 0; i < 3; i++) {
+            number *= 1000;
+            if (i < parts.length) {
+                number += Integer.parseInt(parts[i]);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Executes the given UPDATE or DELETE statement. Before Honeycomb, SQLiteStatement lacks executeUpdateDelete, so
+     * the statement is executed and the count is queried using changes().
+     * 
+     * @return number of rows affected
+     */
+    public static int executeUpdateDelete(SQLiteDatabase db, SQLiteStatement statement) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            return statement.executeUpdateDelete();
+        } else {
+            statement.execute();
+            return (int) DatabaseUtils.longForQuery(db, "SELECT changes()", null);
+        }
+    }
+
     public static void logTableDump(SQLiteDatabase db, String tablename) {
         Cursor cursor = db.query(tablename, null, null, null, null, null, null);
         try {
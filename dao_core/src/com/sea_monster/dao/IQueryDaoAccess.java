@@ -5,6 +5,7 @@ import android.database.Cursor;
 import java.util.List;
 
 import com.sea_monster.dao.internal.TableStatements;
+import com.sea_monster.dao.internal.TableVersion;
 
 /**
  * For internal use by greenDAO only.
@@ -15,6 +16,9 @@ public interface IQueryDaoAccess<T> {
 
     public List<T> loadAllAndCloseCursor(Cursor cursor);
 
+    /** Reads the current row bypassing the identity scope, overwriting the given entity if possible (may be null). */
+    public T loadCurrentRecycled(Cursor cursor, int offset, T recycled);
+
     public T loadUniqueAndCloseCursor(Cursor cursor);
 
     public final static class InternalQueryDaoAccess<T> implements IQueryDaoAccess<T> {
@@ -28,6 +32,10 @@ public interface IQueryDaoAccess<T> {
             return dao.loadCurrent(cursor, offset, lock);
         }
 
+        public T loadCurrentRecycled(Cursor cursor, int offset, T recycled) {
+            return dao.loadCurrentRecycled(cursor, offset, recycled);
+        }
+
         public List<T> loadAllAndCloseCursor(Cursor cursor) {
             return dao.loadAllAndCloseCursor(cursor);
         }
@@ -43,6 +51,29 @@ public interface IQueryDaoAccess<T> {
         public static <T2> TableStatements getStatements(AbstractDao<T2, ?> dao) {
             return dao.getStatements();
         }
+
+        public static <T2> TableVersion getTableVersion(AbstractDao<T2, ?> dao) {
+            return dao.getTableVersion();
+        }
+
+        /** Brackets writes of queries like the DAO's own writes; see {@link AbstractDao#beginWrite()}. */
+        public static <T2> boolean beginWrite(AbstractDao<T2, ?> dao) {
+            return dao.beginWrite();
+        }
+
+        public static <T2> void endWrite(AbstractDao<T2, ?> dao, boolean counted, long rowDelta) {
+            dao.endWrite(counted, rowDelta);
+        }
+
+        /** Publishes a change of unknown rows of the DAO's table; see {@link AbstractDao#onTableChanged(int)}. */
+        public static <T2> void onTableChanged(AbstractDao<T2, ?> dao, int type) {
+            dao.onTableChanged(type);
+        }
+
+        /** Called after a TX not started by a DAO or the session itself (e.g. by an async session) ended. */
+        public static void onTxEnded(AbstractDaoSession session, boolean committed) {
+            session.onTxEnded(committed);
+        }
     }
 
     public final static class InternalQueryDeepDaoAccess<T> implements IQueryDaoAccess<T> {
@@ -56,6 +87,11 @@ public interface IQueryDaoAccess<T> {
             return dao.loadDeepCurrent(cursor, offset, lock);
         }
 
+        /** Deep entities reference joined entities, so they are loaded as usual (not recycled). */
+        public T loadCurrentRecycled(Cursor cursor, int offset, T recycled) {
+            return dao.loadDeepCurrent(cursor, offset, true);
+        }
+
         public List<T> loadAllAndCloseCursor(Cursor cursor) {
             return dao.loadDeepAllAndCloseCursor(cursor);
         }
@@ -0,0 +1,25 @@
+/*
+ * Copyright (C) 2012 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao;
+
+/**
+ * Receives progress of chunked inserts (see {@link AbstractDao#insertInChunks(java.util.Iterator, int, long,
+ * InsertProgressListener)}). Called in the inserting thread after each committed chunk; throughput in rows per second is
+ * totalRows * 1000 / totalMillis.
+ */
+public interface InsertProgressListener {
+    void onChunkCommitted(long totalRows, int chunkRows, long chunkMillis, long totalMillis);
+}
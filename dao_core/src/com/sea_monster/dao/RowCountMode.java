@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2011 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao;
+
+/**
+ * How {@link AbstractDao#count()} gets the row count of a table.
+ * <ul>
+ * <li>None: counts all rows on each call (COUNT(*) scan).</li>
+ * <li>InMemory: the count is kept in memory and updated by the DAO's own inserts and deletes (including
+ * {@link com.sea_monster.dao.query.DeleteQuery}). Writes of unknown effect (e.g. INSERT OR REPLACE) mark it stale; the
+ * next call counts again. Writes inside transactions not started by the DAO keep it from being cached until the
+ * transaction ended (as detected for the session's runInTx/callInTx and the async executor). Call
+ * {@link AbstractDao#invalidateRowCount()} after changing the table by other means (raw SQL, other processes).</li>
+ * <li>Trigger: triggers maintain the count in a counter table, which also covers raw SQL and other processes. Rows
+ * replaced by INSERT OR REPLACE do not fire the delete trigger, so the DAO recounts the table after writes of unknown
+ * effect, and once when the mode is set. Setting another mode drops the triggers.</li>
+ * </ul>
+ */
+public enum RowCountMode {
+    None, InMemory, Trigger
+}
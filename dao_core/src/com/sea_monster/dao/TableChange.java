@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Changes of a single table coalesced over a transaction: the kinds of writes and the keys of the affected rows, if
+ * known. Keys are not known for deleteAll, {@link com.sea_monster.dao.query.DeleteQuery},
+ * {@link com.sea_monster.dao.query.UpdateQuery}, chunked inserts, inserts without key, and when too many rows were
+ * written; observers should then treat the whole table as changed.
+ */
+public final class TableChange {
+    public static final int INSERT = 1;
+    public static final int UPDATE = 2;
+    public static final int DELETE = 4;
+
+    /** More keys are not collected; the change covers the whole table then. */
+    static final int MAX_KEYS = 1024;
+
+    private final String tablename;
+    private int types;
+    /** Null if the keys are not known. */
+    private Set<Object> keys;
+
+    TableChange(String tablename) {
+        this.tablename = tablename;
+        keys = new HashSet<Object>();
+    }
+
+    void add(int type, Object key) {
+        types |= type;
+        if (keys != null) {
+            if (key == null || keys.size() == MAX_KEYS) {
+                keys = null;
+            } else {
+                keys.add(key);
+            }
+        }
+    }
+
+    void addUnknownKeys(int type) {
+        types |= type;
+        keys = null;
+    }
+
+    public String getTablename() {
+        return tablename;
+    }
+
+    /** Bit mask of {@link #INSERT}, {@link #UPDATE}, and {@link #DELETE}. */
+    public int getTypes() {
+        return types;
+    }
+
+    public boolean hasInserts() {
+        return (types & INSERT) != 0;
+    }
+
+    public boolean hasUpdates() {
+        return (types & UPDATE) != 0;
+    }
+
+    public boolean hasDeletes() {
+        return (types & DELETE) != 0;
+    }
+
+    public boolean areKeysKnown() {
+        return keys != null;
+    }
+
+    /** Keys of the affected rows (numeric keys as Long), or null if not known. */
+    public Set<Object> getKeys() {
+        return keys != null ? Collections.unmodifiableSet(keys) : null;
+    }
+
+    /** True if the row with the given key may have changed (always true if the keys are not known). */
+    public boolean mayContain(Object key) {
+        return keys == null || keys.contains(key);
+    }
+
+    @Override
+    public String toString() {
+        return "TableChange[" + tablename + ", types=" + types + ", keys=" + (keys != null ? keys.size() : "unknown")
+                + "]";
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Publishes table changes of a session to {@link TableChangeListener}s. Changes are collected per thread while it is
+ * inside a transaction and published after the outermost transaction ended: by the DAO for its own transactions, by
+ * {@link AbstractDaoSession#runInTx(Runnable)} and callInTx, and by merged transactions of async sessions. Changes of
+ * rolled back transactions are discarded. Changes made inside transactions started directly on the database are
+ * published with the next change of the thread outside a transaction (or call {@link #publishPendingChanges()}).
+ * 
+ * Nothing is collected unless a listener is registered. This class is thread-safe.
+ */
+public class TableChangeBus {
+
+    private static final class Registration {
+        private final TableChangeListener listener;
+        /** Null for all tables. */
+        private final String[] tablenames;
+
+        private Registration(TableChangeListener listener, String[] tablenames) {
+            this.listener = listener;
+            this.tablenames = tablenames != null && tablenames.length > 0 ? tablenames : null;
+        }
+
+        private boolean observes(String tablename) {
+            if (tablenames == null) {
+                return true;
+            }
+            for (String observed : tablenames) {
+                if (observed.equals(tablename)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final SQLiteDatabase db;
+    private final CopyOnWriteArrayList<Registration> registrations = new CopyOnWriteArrayList<Registration>();
+
+    private final ThreadLocal<Map<String, TableChange>> pendingChanges = new ThreadLocal<Map<String, TableChange>>() {
+        @Override
+        protected Map<String, TableChange> initialValue() {
+            return new LinkedHashMap<String, TableChange>();
+        }
+    };
+
+    public TableChangeBus(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /** @param tablenames tables to observe; all tables if none is given */
+    public void addListener(TableChangeListener listener, String... tablenames) {
+        registrations.add(new Registration(listener, tablenames));
+    }
+
+    public void removeListener(TableChangeListener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+    }
+
+    public boolean hasListeners() {
+        return !registrations.isEmpty();
+    }
+
+    /**
+     * Returns the calling thread's pending change of the given table to add rows to; call
+     * {@link #publishIfOutsideTx()} afterwards.
+     */
+    TableChange getPendingChange(String tablename) {
+        Map<String, TableChange> changes = pendingChanges.get();
+        TableChange change = changes.get(tablename);
+        if (change == null) {
+            change = new TableChange(tablename);
+            changes.put(tablename, change);
+        }
+        return change;
+    }
+
+    /** Publishes the pending changes unless the calling thread is inside a transaction. */
+    void publishIfOutsideTx() {
+        if (!db.inTransaction()) {
+            flush(true);
+        }
+    }
+
+    /** Called after a transaction ended; only the outermost transaction publishes or discards the changes. */
+    void onTxEnded(boolean committed) {
+        if (!db.inTransaction()) {
+            flush(committed);
+        }
+    }
+
+    /** Publishes the changes collected by the calling thread, e.g. after committing a transaction of its own. */
+    public void publishPendingChanges() {
+        flush(true);
+    }
+
+    private void flush(boolean publish) {
+        Map<String, TableChange> changes = pendingChanges.get();
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<TableChange> published = new ArrayList<TableChange>(changes.values());
+        changes.clear();
+        if (!publish) {
+            return;
+        }
+        Collection<TableChange> all = Collections.unmodifiableList(published);
+        for (Registration registration : registrations) {
+            Collection<TableChange> observed = all;
+            if (registration.tablenames != null) {
+                List<TableChange> filtered = new ArrayList<TableChange>(published.size());
+                for (TableChange change : published) {
+                    if (registration.observes(change.getTablename())) {
+                        filtered.add(change);
+                    }
+                }
+                if (filtered.isEmpty()) {
+                    continue;
+                }
+                observed = Collections.unmodifiableList(filtered);
+            }
+            try {
+                registration.listener.onTablesChanged(observed);
+            } catch (RuntimeException e) {
+                // The TX is committed already; do not fail the write or keep other listeners from being notified
+                DaoLog.e("Table change listener failed", e);
+            }
+        }
+    }
+
+}
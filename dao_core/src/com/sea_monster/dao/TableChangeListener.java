@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao;
+
+import java.util.Collection;
+
+/**
+ * Receives changes of tables written through the DAOs and queries of a session (see
+ * {@link AbstractDaoSession#addTableChangeListener(TableChangeListener, String...)}). Called once per committed
+ * transaction in the writing thread after the transaction ended, with one {@link TableChange} per written table. Keep
+ * it short (e.g. post to another thread); writes inside the listener are published by a separate call.
+ */
+public interface TableChangeListener {
+    void onTablesChanged(Collection<TableChange> changes);
+}
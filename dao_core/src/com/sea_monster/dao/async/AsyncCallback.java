@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.async;
+
+/**
+ * Called once an {@link AsyncFuture} completed.
+ * 
+ * @see AsyncFuture#addCallback(AsyncCallback, java.util.concurrent.Executor)
+ */
+public interface AsyncCallback<V> {
+    void onSuccess(V result);
+
+    /** Also called for cancelled operations, with a {@link java.util.concurrent.CancellationException}. */
+    void onFailure(Throwable throwable);
+}
@@ -19,7 +19,7 @@ package com.sea_monster.dao.async;
 import com.sea_monster.dao.DaoException;
 
 /**
- * Used here: {@link AsyncOperation#getResult()}.
+ * Used here: {@link AsyncOperation#getResult()}, and for operations rejected because of the queue capacity.
  * 
  * @author Markus
  */
@@ -34,6 +34,11 @@ public class AsyncDaoException extends DaoException {
         this.failedOperation = failedOperation;
     }
 
+    public AsyncDaoException(AsyncOperation failedOperation, String error) {
+        super(error);
+        this.failedOperation = failedOperation;
+    }
+
     public AsyncOperation getFailedOperation() {
         return failedOperation;
     }
@@ -0,0 +1,24 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.async;
+
+/**
+ * Maps the result of an {@link AsyncFuture} to a value (see {@link AsyncFuture#then(AsyncFunction)}) or to a
+ * follow-up future (see {@link AsyncFuture#compose(AsyncFunction)}). Exceptions fail the resulting future.
+ */
+public interface AsyncFunction<I, O> {
+    O apply(I input) throws Exception;
+}
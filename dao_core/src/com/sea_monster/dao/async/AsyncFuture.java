@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.async;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sea_monster.dao.DaoLog;
+
+/**
+ * The future result of an {@link AsyncOperation} (see {@link AsyncOperation#getFuture()}), or of a chain of them.
+ * Instead of blocking, callbacks may be added and results may be mapped using {@link #then(AsyncFunction)} or
+ * follow-up operations enqueued using {@link #compose(AsyncFunction)}; {@link #allOf(AsyncFuture...)} joins futures.
+ * 
+ * Callbacks and functions given without an Executor are called by the thread completing the future, which usually is
+ * an executor thread of the AsyncSession; they must not block then. Operations they enqueue never wait for queue
+ * capacity on executor threads (see {@link AsyncOverflowPolicy#Block}). Pass {@link #mainThreadExecutor()} to call them
+ * on the Android main thread, or any other Executor (e.g. on a plain JVM).
+ * 
+ * @param <V>
+ *            The result type; see {@link AsyncOperation#getFuture()} for the results of operations.
+ */
+public class AsyncFuture<V> implements Future<V> {
+
+    private static volatile Executor mainThreadExecutor;
+
+    private static class CallbackEntry<V> {
+        final AsyncCallback<? super V> callback;
+        final Executor executor;
+
+        CallbackEntry(AsyncCallback<? super V> callback, Executor executor) {
+            this.callback = callback;
+            this.executor = executor;
+        }
+    }
+
+    /** The operation for cancellation; null for futures derived from other futures. */
+    private final AsyncOperation operation;
+
+    /** Guarded by this; results are only set once. */
+    private boolean done;
+    private volatile V result;
+    private volatile Throwable throwable;
+    private List<CallbackEntry<V>> callbacks;
+
+    AsyncFuture(AsyncOperation operation) {
+        this.operation = operation;
+    }
+
+    /** @return an Executor posting to the Android main thread. */
+    public static Executor mainThreadExecutor() {
+        Executor executor = mainThreadExecutor;
+        if (executor == null) {
+            // Created lazily, so futures do not require a main Looper otherwise
+            final Handler handler = new Handler(Looper.getMainLooper());
+            executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    handler.post(command);
+                }
+            };
+            mainThreadExecutor = executor;
+        }
+        return executor;
+    }
+
+    /**
+     * Completes the future with the given result or throwable and calls the callbacks. Later calls are ignored.
+     * 
+     * @return true if this call completed the future.
+     */
+    boolean complete(V result, Throwable throwable) {
+        List<CallbackEntry<V>> callbacksToCall;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.result = result;
+            this.throwable = throwable;
+            done = true;
+            callbacksToCall = callbacks;
+            callbacks = null;
+            notifyAll();
+        }
+        if (callbacksToCall != null) {
+            for (CallbackEntry<V> entry : callbacksToCall) {
+                callCallback(entry.callback, entry.executor);
+            }
+        }
+        return true;
+    }
+
+    /** Calls the callback directly by the completing thread (or the calling thread if already completed). */
+    public AsyncFuture<V> addCallback(AsyncCallback<? super V> callback) {
+        return addCallback(callback, null);
+    }
+
+    /**
+     * Calls the callback using the given Executor once the future completed, or right away if it already is.
+     * 
+     * @param executor
+     *            null to call the callback by the completing thread
+     */
+    public AsyncFuture<V> addCallback(AsyncCallback<? super V> callback, Executor executor) {
+        synchronized (this) {
+            if (!done) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<CallbackEntry<V>>(2);
+                }
+                callbacks.add(new CallbackEntry<V>(callback, executor));
+                return this;
+            }
+        }
+        callCallback(callback, executor);
+        return this;
+    }
+
+    private void callCallback(final AsyncCallback<? super V> callback, Executor executor) {
+        if (executor == null) {
+            callCallback(callback);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callCallback(callback);
+                }
+            });
+        }
+    }
+
+    private void callCallback(AsyncCallback<? super V> callback) {
+        try {
+            Throwable failure = throwable;
+            if (failure != null) {
+                callback.onFailure(failure);
+            } else {
+                callback.onSuccess(result);
+            }
+        } catch (RuntimeException e) {
+            // Do not let a callback break the executor thread or other callbacks
+            DaoLog.e("Async callback failed", e);
+        }
+    }
+
+    /** Calls {@link #then(AsyncFunction, Executor)} without Executor. */
+    public <R> AsyncFuture<R> then(AsyncFunction<? super V, ? extends R> function) {
+        return then(function, null);
+    }
+
+    /**
+     * @return a future completing with the function's result once this future succeeded, or with this future's
+     *         failure; the function is not called on failure.
+     */
+    public <R> AsyncFuture<R> then(final AsyncFunction<? super V, ? extends R> function, Executor executor) {
+        final AsyncFuture<R> next = new AsyncFuture<R>(null);
+        addCallback(new AsyncCallback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                R mapped;
+                try {
+                    mapped = function.apply(value);
+                } catch (Throwable th) {
+                    next.complete(null, th);
+                    return;
+                }
+                next.complete(mapped, null);
+            }
+
+            @Override
+            public void onFailure(Throwable th) {
+                next.complete(null, th);
+            }
+        }, executor);
+        return next;
+    }
+
+    /** Calls {@link #compose(AsyncFunction, Executor)} without Executor. */
+    public <R> AsyncFuture<R> compose(AsyncFunction<? super V, ? extends AsyncFuture<? extends R>> function) {
+        return compose(function, null);
+    }
+
+    /**
+     * Chains a follow-up operation without blocking any thread: once this future succeeded, the function is called to
+     * enqueue the follow-up operation, typically returning {@link AsyncOperation#getFuture()}.
+     * 
+     * Note: the function may only enqueue thread-bound queries using
+     * {@link com.sea_monster.dao.query.Query#forCurrentThread()}; prefer
+     * {@link AsyncSession#queryList(com.sea_monster.dao.query.SharedQuery)}. Without an Executor, the function runs on
+     * an executor thread, which enqueues beyond a limited queue capacity instead of waiting for itself.
+     * 
+     * @return a future completing like the follow-up future, or with this future's failure.
+     */
+    public <R> AsyncFuture<R> compose(final AsyncFunction<? super V, ? extends AsyncFuture<? extends R>> function,
+            Executor executor) {
+        final AsyncFuture<R> next = new AsyncFuture<R>(null);
+        final AsyncCallback<R> forward = new AsyncCallback<R>() {
+            @Override
+            public void onSuccess(R value) {
+                next.complete(value, null);
+            }
+
+            @Override
+            public void onFailure(Throwable th) {
+                next.complete(null, th);
+            }
+        };
+        addCallback(new AsyncCallback<V>() {
+            @Override
+            public void onSuccess(V value) {
+                AsyncFuture<? extends R> followUp;
+                try {
+                    followUp = function.apply(value);
+                } catch (Throwable th) {
+                    next.complete(null, th);
+                    return;
+                }
+                if (followUp != null) {
+                    followUp.addCallback(forward);
+                } else {
+                    next.complete(null, null);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable th) {
+                next.complete(null, th);
+            }
+        }, executor);
+        return next;
+    }
+
+    /**
+     * @return a future completing with the results of all given futures (in the given order) once all succeeded, or
+     *         with the first failure.
+     */
+    public static AsyncFuture<List<Object>> allOf(AsyncFuture<?>... futures) {
+        return allOf(Arrays.asList(futures));
+    }
+
+    /** See {@link #allOf(AsyncFuture...)}. */
+    public static AsyncFuture<List<Object>> allOf(Collection<? extends AsyncFuture<?>> futures) {
+        final AsyncFuture<List<Object>> all = new AsyncFuture<List<Object>>(null);
+        final Object[] results = new Object[futures.size()];
+        if (results.length == 0) {
+            all.complete(new ArrayList<Object>(), null);
+            return all;
+        }
+        final AtomicInteger remaining = new AtomicInteger(results.length);
+        int index = 0;
+        for (AsyncFuture<?> future : futures) {
+            final int resultIndex = index++;
+            future.addCallback(new AsyncCallback<Object>() {
+                @Override
+                public void onSuccess(Object result) {
+                    results[resultIndex] = result;
+                    if (remaining.decrementAndGet() == 0) {
+                        all.complete(Arrays.asList(results), null);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable th) {
+                    all.complete(null, th);
+                }
+            });
+        }
+        return all;
+    }
+
+    /**
+     * Cancels the operation if it did not start yet (see {@link AsyncOperation#cancel()}). Futures derived from other
+     * futures complete as cancelled without affecting the operations they depend on.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (operation != null) {
+            return operation.cancel();
+        } else {
+            return complete(null, new CancellationException("Future was cancelled"));
+        }
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return isDone() && throwable instanceof CancellationException;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /** @return the throwable of a failed future, or null. */
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    @Override
+    public synchronized V get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getCompletedResult();
+    }
+
+    @Override
+    public synchronized V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!done) {
+            long remainingMillis = deadline - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                throw new TimeoutException();
+            }
+            wait(remainingMillis);
+        }
+        return getCompletedResult();
+    }
+
+    private V getCompletedResult() throws ExecutionException {
+        Throwable failure = throwable;
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        } else if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+}
@@ -18,18 +18,25 @@ package com.sea_monster.dao.async;
 
 import android.database.sqlite.SQLiteDatabase;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.query.SharedQuery;
 
 /**
- * An operation that will be enqueued for asynchronous execution.
+ * An operation that will be enqueued for asynchronous execution. Implements {@link Future} for blocking access to the
+ * result; use {@link #getFuture()} for callbacks and chaining.
  * 
  * @author Markus
  * 
  * @see AsyncSession
  */
-// TODO Implement Future<V>
-public class AsyncOperation {
+public class AsyncOperation implements Future<Object> {
     public static enum OperationType {
         Insert, InsertInTxIterable, InsertInTxArray, //
         InsertOrReplace, InsertOrReplaceInTxIterable, InsertOrReplaceInTxArray, //
@@ -44,6 +51,19 @@ public class AsyncOperation {
 
     public static final int FLAG_MERGE_TX = 1;
 
+    /**
+     * Executes the operation before any queued operations of lower priority, e.g. for loads the user is waiting for.
+     * Operations of the same priority are executed in the order they were enqueued.
+     */
+    public static final int FLAG_PRIORITY_HIGH = 1 << 2;
+
+    /** Executes the operation after any queued operations of higher priority, e.g. for background syncs. */
+    public static final int FLAG_PRIORITY_LOW = 1 << 3;
+
+    public static final int PRIORITY_LOW = 0;
+    public static final int PRIORITY_NORMAL = 1;
+    public static final int PRIORITY_HIGH = 2;
+
     /** TODO unused, just an idea */
     public static final int FLAG_STOP_QUEUE_ON_EXCEPTION = 1 << 1;
 
@@ -57,11 +77,23 @@ public class AsyncOperation {
     volatile long timeStarted;
     volatile long timeCompleted;
     private volatile boolean completed;
+    private volatile boolean cancelled;
     volatile Throwable throwable;
     volatile Object result;
     volatile int mergedOperationsCount;
+    volatile int coalescedOperationsCount;
 
     int sequenceNumber;
+    /** True if executed by the read lane of the executor. */
+    boolean readLane;
+    /** For reads of the read lane: lowest priority of the writes enqueued before that the read waits for. */
+    int waitForWritePriority;
+    /** For query operations: the thread-agnostic version of the Query parameter, taken at enqueue time. */
+    SharedQuery<?> sharedQuery;
+    /** Set when enqueued; used for cancellation. */
+    AsyncOperationExecutor executor;
+    /** Created on demand; guarded by this. */
+    private AsyncFuture<Object> future;
 
     @SuppressWarnings("unchecked")
     AsyncOperation(OperationType type, AbstractDao<?, ?> dao, Object parameter, int flags) {
@@ -118,16 +150,62 @@ public class AsyncOperation {
         return (flags & FLAG_MERGE_TX) != 0;
     }
 
+    /**
+     * @return {@link #PRIORITY_HIGH} or {@link #PRIORITY_LOW} if the corresponding flag was given (high wins if both
+     *         were given), otherwise {@link #PRIORITY_NORMAL}.
+     */
+    public int getPriority() {
+        if ((flags & FLAG_PRIORITY_HIGH) != 0) {
+            return PRIORITY_HIGH;
+        } else if ((flags & FLAG_PRIORITY_LOW) != 0) {
+            return PRIORITY_LOW;
+        } else {
+            return PRIORITY_NORMAL;
+        }
+    }
+
+    /**
+     * Cancels the operation if it is still queued. A cancelled operation completes immediately with a
+     * {@link CancellationException} as throwable (see {@link #getResult()}); listeners are notified as usual.
+     * 
+     * @return true if the operation was cancelled; false if it already started or completed.
+     */
+    public boolean cancel() {
+        AsyncOperationExecutor executorToUse = executor;
+        return executorToUse != null && executorToUse.cancel(this);
+    }
+
+    /** Same as {@link #cancel()}; running operations are never interrupted. */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return cancel();
+    }
+
+    /** @return true if the operation was cancelled before it started. */
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Called by the executor after it removed the operation from its queue. */
+    void setCancelled(String reason) {
+        cancelled = true;
+        throwable = new CancellationException(reason);
+        timeCompleted = System.currentTimeMillis();
+        timeStarted = timeCompleted;
+    }
+
     SQLiteDatabase getDatabase() {
         return database != null ? database : dao.getDatabase();
     }
 
     /**
      * @return true if this operation is mergeable with the given operation. Checks for null, {@link #FLAG_MERGE_TX},
-     *         and if the database instances match.
+     *         the priority, and if the database instances match.
      */
     boolean isMergeableWith(AsyncOperation other) {
-        return other != null && isMergeTx() && other.isMergeTx() && getDatabase() == other.getDatabase();
+        return other != null && isMergeTx() && other.isMergeTx() && getPriority() == other.getPriority()
+                && getDatabase() == other.getDatabase();
     }
 
     public long getTimeStarted() {
@@ -154,6 +232,76 @@ public class AsyncOperation {
         return completed;
     }
 
+    @Override
+    public boolean isDone() {
+        return completed;
+    }
+
+    /**
+     * Waits until the operation is complete like {@link #getResult()}, but according to the {@link Future} contract.
+     * 
+     * @throws ExecutionException
+     *             if the operation failed
+     */
+    @Override
+    public synchronized Object get() throws InterruptedException, ExecutionException {
+        while (!completed) {
+            wait();
+        }
+        return getCompletedResult();
+    }
+
+    @Override
+    public synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+            TimeoutException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!completed) {
+            long remainingMillis = deadline - System.currentTimeMillis();
+            if (remainingMillis <= 0) {
+                throw new TimeoutException();
+            }
+            wait(remainingMillis);
+        }
+        return getCompletedResult();
+    }
+
+    private Object getCompletedResult() throws ExecutionException {
+        Throwable failure = throwable;
+        if (failure instanceof CancellationException) {
+            throw (CancellationException) failure;
+        } else if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+
+    /**
+     * The future completing with this operation, for callbacks and chaining without blocking (see
+     * {@link AsyncFuture}). Results are typed like {@link #getResult()}: a List for query lists and load all, the
+     * entity for unique queries and loads, a Long for counts, the callable's result for callInTx, and null otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <V> AsyncFuture<V> getFuture() {
+        if (future == null) {
+            future = new AsyncFuture<Object>(this);
+            if (completed) {
+                future.complete(throwable == null ? result : null, throwable);
+            }
+        }
+        return (AsyncFuture<V>) future;
+    }
+
+    /** Completes the future, if one was requested; called by the executor after {@link #setCompleted()}. */
+    void completeFuture() {
+        AsyncFuture<Object> futureToComplete;
+        synchronized (this) {
+            futureToComplete = future;
+        }
+        if (futureToComplete != null) {
+            futureToComplete.complete(throwable == null ? result : null, throwable);
+        }
+    }
+
     /**
      * Waits until the operation is complete. If the thread gets interrupted, any {@link InterruptedException} will be
      * rethrown as a {@link DaoException}.
@@ -206,6 +354,14 @@ public class AsyncOperation {
         return mergedOperationsCount;
     }
 
+    /**
+     * If this operation was executed together with other operations of the same type and DAO using a single InTx call
+     * (inside a merged TX), this will give the count of those operations. Otherwise, it will be 0.
+     */
+    public int getCoalescedOperationsCount() {
+        return coalescedOperationsCount;
+    }
+
     /**
      * Each operation get a unique sequence number when the operation is enqueued. Can be used for efficiently
      * identifying/mapping operations.
@@ -222,6 +378,7 @@ public class AsyncOperation {
         throwable = null;
         result = null;
         mergedOperationsCount = 0;
+        coalescedOperationsCount = 0;
     }
 
 }
@@ -21,23 +21,88 @@ import android.os.Looper;
 import android.os.Message;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
+import com.sea_monster.dao.AbstractDaoSession;
 import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.DaoLog;
-import com.sea_monster.dao.query.Query;
-
+import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.async.AsyncOperation.OperationType;
+
+/**
+ * Executes operations in two lanes: the write lane (this runnable) executes writes and transactions one by one in
+ * enqueue order, merging TXs if possible. The read lane executes reads in parallel using up to maxReadThreads
+ * {@link ReadWorker}s. When reads may start is defined by the {@link AsyncOrdering}. Both lanes execute operations
+ * of higher priority first, and operations of the same priority in enqueue order.
+ */
 class AsyncOperationExecutor implements Runnable, Handler.Callback {
 
-    private static ExecutorService executorService = Executors.newCachedThreadPool();
+    public static final int DEFAULT_MAX_READ_THREADS = 2;
+
+    private static ExecutorService executorService = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new ExecutorThread(runnable);
+        }
+    });
+
+    /**
+     * Thread running operations, listeners, and future callbacks of any executor. Never waits for queue capacity: it
+     * might be the thread that has to take the next operation.
+     */
+    private static final class ExecutorThread extends Thread {
+        ExecutorThread(Runnable runnable) {
+            super(runnable);
+        }
+    }
+
+    /** Higher priority first, FIFO within a priority. */
+    private static final Comparator<AsyncOperation> PRIORITY_ORDER = new Comparator<AsyncOperation>() {
+        @Override
+        public int compare(AsyncOperation lhs, AsyncOperation rhs) {
+            int lhsPriority = lhs.getPriority();
+            int rhsPriority = rhs.getPriority();
+            if (lhsPriority != rhsPriority) {
+                return lhsPriority > rhsPriority ? -1 : 1;
+            }
+            return lhs.sequenceNumber < rhs.sequenceNumber ? -1 : (lhs.sequenceNumber == rhs.sequenceNumber ? 0 : 1);
+        }
+    };
 
+    /** The write lane; also gets the reads if ordering is {@link AsyncOrdering#Serialized}. */
     private final BlockingQueue<AsyncOperation> queue;
+    /** The read lane. */
+    private final BlockingQueue<AsyncOperation> readQueue;
+    /** Reads waiting for writes enqueued before them (see {@link AsyncOrdering#ReadAfterOwnWrite}); guarded by this. */
+    private final List<AsyncOperation> parkedReads;
+    /** Sequence numbers of write lane operations that did not complete yet, by priority; guarded by this. */
+    private final List<TreeSet<Integer>> pendingWriteSequenceNumbers;
     private volatile boolean executorRunning;
+    private volatile AsyncOrdering ordering;
+    private volatile int maxReadThreads;
+    /** Max count of queued operations of both lanes; 0 for unbounded. */
+    private volatile int queueCapacity;
+    private volatile AsyncOverflowPolicy overflowPolicy;
+    /** Count of threads waiting for queue capacity; modified while holding the lock. */
+    private volatile int blockedProducers;
+    /** Guarded by this. */
+    private int countOperationsDropped;
+    private int countOperationsRejected;
+    /** Guarded by this. */
+    private int readThreadsRunning;
+    /** High-water marks of the queue depths; guarded by this. */
+    private int maxWriteQueueDepth;
+    private int maxReadQueueDepth;
     private volatile int maxOperationCountToMerge;
     private volatile AsyncOperationListener listener;
     private volatile AsyncOperationListener listenerMainThread;
@@ -49,22 +114,329 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
     private Handler handlerMainThread;
     private int lastSequenceNumber;
 
-    AsyncOperationExecutor() {
-        queue = new LinkedBlockingQueue<AsyncOperation>();
+    /** Runs transactions of operations, so the session tracks them like its own. */
+    private final AbstractDaoSession daoSession;
+
+    AsyncOperationExecutor(AbstractDaoSession daoSession) {
+        this.daoSession = daoSession;
+        queue = new PriorityBlockingQueue<AsyncOperation>(11, PRIORITY_ORDER);
+        readQueue = new PriorityBlockingQueue<AsyncOperation>(11, PRIORITY_ORDER);
+        parkedReads = new ArrayList<AsyncOperation>();
+        pendingWriteSequenceNumbers = new ArrayList<TreeSet<Integer>>();
+        for (int priority = AsyncOperation.PRIORITY_LOW; priority <= AsyncOperation.PRIORITY_HIGH; priority++) {
+            pendingWriteSequenceNumbers.add(new TreeSet<Integer>());
+        }
         maxOperationCountToMerge = 50;
         waitForMergeMillis = 50;
+        ordering = AsyncOrdering.ReadAfterOwnWrite;
+        maxReadThreads = DEFAULT_MAX_READ_THREADS;
+        overflowPolicy = AsyncOverflowPolicy.Block;
+    }
+
+    /** @return true if operations of the given type only read from the database and may use the read lane. */
+    static boolean isRead(OperationType type) {
+        switch (type) {
+        case QueryList:
+        case QueryUnique:
+        case Load:
+        case LoadAll:
+        case Count:
+        case Refresh:
+            return true;
+        default:
+            return false;
+        }
     }
 
     public void enqueue(AsyncOperation operation) {
+        AsyncOperation droppedOperation;
         synchronized (this) {
+            droppedOperation = makeRoom(operation);
             operation.sequenceNumber = ++lastSequenceNumber;
-            queue.add(operation);
+            operation.executor = this;
             countOperationsEnqueued++;
-            if (!executorRunning) {
-                executorRunning = true;
-                executorService.execute(this);
+            AsyncOrdering currentOrdering = ordering;
+            if (currentOrdering != AsyncOrdering.Serialized && isRead(operation.type)) {
+                operation.readLane = true;
+                operation.waitForWritePriority = getWaitForWritePriority(operation, currentOrdering);
+                if (hasPendingWriteBefore(operation)) {
+                    parkedReads.add(operation);
+                    updateMaxReadQueueDepth();
+                } else {
+                    enqueueRead(operation);
+                }
+            } else {
+                operation.readLane = false;
+                pendingWriteSequenceNumbers.get(operation.getPriority()).add(operation.sequenceNumber);
+                queue.add(operation);
+                int depth = queue.size();
+                if (depth > maxWriteQueueDepth) {
+                    maxWriteQueueDepth = depth;
+                }
+                if (!executorRunning) {
+                    executorRunning = true;
+                    executorService.execute(this);
+                }
+            }
+        }
+        if (droppedOperation != null) {
+            // Outside of the lock because listeners are called
+            handleOperationCompleted(droppedOperation);
+        }
+    }
+
+    /**
+     * Applies the overflow policy if the queue capacity is reached. Must be called while holding the lock.
+     * 
+     * @return the operation dropped to make room, if any
+     */
+    private AsyncOperation makeRoom(AsyncOperation operation) {
+        int capacity = queueCapacity;
+        if (capacity <= 0 || getQueuedCount() < capacity) {
+            return null;
+        }
+        AsyncOverflowPolicy policy = overflowPolicy;
+        if (policy == AsyncOverflowPolicy.Fail) {
+            countOperationsRejected++;
+            throw new AsyncDaoException(operation, "Queue capacity reached: " + capacity);
+        } else if (policy == AsyncOverflowPolicy.DropOldestLow) {
+            AsyncOperation droppedOperation = removeOldestLowPriority();
+            if (droppedOperation != null) {
+                droppedOperation.setCancelled("Operation was dropped because the queue capacity was reached");
+                countOperationsDropped++;
+                return droppedOperation;
+            }
+        }
+        if (Thread.currentThread() instanceof ExecutorThread) {
+            // Waiting could wait for this thread itself (e.g. enqueuing from an operation, listener, or callback)
+            return null;
+        }
+        blockedProducers++;
+        try {
+            // Check again after announcing the wait, so taking an operation cannot be missed
+            while (queueCapacity > 0 && getQueuedCount() >= queueCapacity) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            throw new DaoException("Interrupted while waiting for queue capacity", e);
+        } finally {
+            blockedProducers--;
+        }
+        return null;
+    }
+
+    /** Must be called while holding the lock. */
+    private int getQueuedCount() {
+        return queue.size() + readQueue.size() + parkedReads.size();
+    }
+
+    /** Removes the low priority operation with the lowest sequence number from any lane. Must hold the lock. */
+    private AsyncOperation removeOldestLowPriority() {
+        AsyncOperation oldest = findOldestLowPriority(queue, null);
+        oldest = findOldestLowPriority(readQueue, oldest);
+        oldest = findOldestLowPriority(parkedReads, oldest);
+        if (oldest != null) {
+            if (oldest.readLane) {
+                if (!readQueue.remove(oldest)) {
+                    parkedReads.remove(oldest);
+                }
+            } else {
+                queue.remove(oldest);
+            }
+        }
+        return oldest;
+    }
+
+    private static AsyncOperation findOldestLowPriority(Iterable<AsyncOperation> operations, AsyncOperation oldest) {
+        for (AsyncOperation operation : operations) {
+            if (operation.getPriority() == AsyncOperation.PRIORITY_LOW
+                    && (oldest == null || operation.sequenceNumber < oldest.sequenceNumber)) {
+                oldest = operation;
+            }
+        }
+        return oldest;
+    }
+
+    /** Wakes up producers waiting for queue capacity after an operation was taken from a queue. */
+    private void onDequeued() {
+        if (blockedProducers > 0) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /** Must be called while holding the lock. */
+    private void enqueueRead(AsyncOperation operation) {
+        readQueue.add(operation);
+        updateMaxReadQueueDepth();
+        if (readThreadsRunning < maxReadThreads) {
+            readThreadsRunning++;
+            executorService.execute(new ReadWorker());
+        }
+    }
+
+    /** Must be called while holding the lock. */
+    private void updateMaxReadQueueDepth() {
+        int depth = readQueue.size() + parkedReads.size();
+        if (depth > maxReadQueueDepth) {
+            maxReadQueueDepth = depth;
+        }
+    }
+
+    /**
+     * @return the lowest priority of the earlier writes the read waits for, or a priority above all for no waiting.
+     */
+    private static int getWaitForWritePriority(AsyncOperation read, AsyncOrdering ordering) {
+        switch (ordering) {
+        case ReadAfterOwnWrite:
+            return AsyncOperation.PRIORITY_LOW;
+        case ReadAfterOwnWriteOfPriority:
+            return read.getPriority();
+        default:
+            return AsyncOperation.PRIORITY_HIGH + 1;
+        }
+    }
+
+    /**
+     * @return true if a write of at least the read's {@link AsyncOperation#waitForWritePriority} was enqueued before the
+     *         read and did not complete yet. Must be called while holding the lock.
+     */
+    private boolean hasPendingWriteBefore(AsyncOperation read) {
+        for (int priority = read.waitForWritePriority; priority < pendingWriteSequenceNumbers.size(); priority++) {
+            TreeSet<Integer> pending = pendingWriteSequenceNumbers.get(priority);
+            if (!pending.isEmpty() && pending.first() < read.sequenceNumber) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /** Moves parked reads to the read lane once the writes enqueued before them completed. Must hold the lock. */
+    private void releaseParkedReads() {
+        Iterator<AsyncOperation> iterator = parkedReads.iterator();
+        while (iterator.hasNext()) {
+            AsyncOperation read = iterator.next();
+            if (!hasPendingWriteBefore(read)) {
+                iterator.remove();
+                enqueueRead(read);
+            }
+        }
+    }
+
+    /** Removes the operation if it is still queued and completes it as cancelled. */
+    boolean cancel(AsyncOperation operation) {
+        synchronized (this) {
+            boolean removed;
+            if (operation.readLane) {
+                removed = readQueue.remove(operation) || parkedReads.remove(operation);
+            } else {
+                removed = queue.remove(operation);
+            }
+            if (!removed) {
+                return false;
+            }
+            operation.setCancelled("Operation was cancelled before it started");
+        }
+        onDequeued();
+        handleOperationCompleted(operation);
+        return true;
+    }
+
+    public AsyncOrdering getOrdering() {
+        return ordering;
+    }
+
+    /** Sets the ordering for operations enqueued afterwards. */
+    public void setOrdering(AsyncOrdering ordering) {
+        if (ordering == null) {
+            throw new IllegalArgumentException("Ordering must not be null");
+        }
+        this.ordering = ordering;
+    }
+
+    public int getMaxReadThreads() {
+        return maxReadThreads;
+    }
+
+    public void setMaxReadThreads(int maxReadThreads) {
+        if (maxReadThreads < 1) {
+            throw new IllegalArgumentException("At least one read thread is required, but was " + maxReadThreads);
+        }
+        this.maxReadThreads = maxReadThreads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** Sets the max count of queued operations of both lanes; 0 (the default) for unbounded. */
+    public synchronized void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Illegal queue capacity: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        // Blocked producers may proceed if the capacity was raised
+        notifyAll();
+    }
+
+    public AsyncOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(AsyncOverflowPolicy overflowPolicy) {
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("Overflow policy must not be null");
+        }
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /** @return count of operations waiting for execution in both lanes; limited by the queue capacity. */
+    public synchronized int getQueueDepth() {
+        return getQueuedCount();
+    }
+
+    /** @return count of operations dropped by {@link AsyncOverflowPolicy#DropOldestLow}. */
+    public synchronized int getCountOperationsDropped() {
+        return countOperationsDropped;
+    }
+
+    /** @return count of operations rejected by {@link AsyncOverflowPolicy#Fail}. */
+    public synchronized int getCountOperationsRejected() {
+        return countOperationsRejected;
+    }
+
+    /** @return count of write lane operations waiting for execution. */
+    public int getWriteQueueDepth() {
+        return queue.size();
+    }
+
+    /** @return count of reads waiting for execution, including reads waiting for preceding writes. */
+    public synchronized int getReadQueueDepth() {
+        return readQueue.size() + parkedReads.size();
+    }
+
+    /** @return the highest write queue depth since this executor was created or the statistics were reset. */
+    public synchronized int getMaxWriteQueueDepth() {
+        return maxWriteQueueDepth;
+    }
+
+    /** @return the highest read queue depth since this executor was created or the statistics were reset. */
+    public synchronized int getMaxReadQueueDepth() {
+        return maxReadQueueDepth;
+    }
+
+    /** @return count of threads currently serving the read lane. */
+    public synchronized int getReadThreadsRunning() {
+        return readThreadsRunning;
+    }
+
+    /** Resets the high-water marks of the queue depths to the current depths, and the dropped/rejected counts. */
+    public synchronized void resetQueueStatistics() {
+        maxWriteQueueDepth = queue.size();
+        maxReadQueueDepth = readQueue.size() + parkedReads.size();
+        countOperationsDropped = 0;
+        countOperationsRejected = 0;
     }
 
     public int getMaxOperationCountToMerge() {
@@ -150,10 +522,12 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
                             }
                         }
                     }
+                    onDequeued();
                     if (operation.isMergeTx()) {
                         // Wait some ms for another operation to merge because a TX is expensive
                         AsyncOperation operation2 = queue.poll(waitForMergeMillis, TimeUnit.MILLISECONDS);
                         if (operation2 != null) {
+                            onDequeued();
                             if (operation.isMergeableWith(operation2)) {
                                 mergeTxAndExecute(operation, operation2);
                             } else {
@@ -182,32 +556,39 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
         SQLiteDatabase db = operation1.getDatabase();
         db.beginTransaction();
         boolean failed = false;
+        boolean committed = false;
         try {
             for (int i = 0; i < mergedOps.size(); i++) {
                 AsyncOperation operation = mergedOps.get(i);
-                executeOperation(operation);
+                int end = i + 1;
+                if (isCoalescable(operation.type)) {
+                    // Extend the run of coalescable ops, taking more mergeable ops from the queue if necessary
+                    while ((end < mergedOps.size() || pollMergeable(mergedOps))
+                            && isCoalescableWith(operation, mergedOps.get(end))) {
+                        end++;
+                    }
+                }
+                if (end - i > 1) {
+                    executeCoalesced(mergedOps.subList(i, end));
+                    i = end - 1;
+                } else {
+                    executeOperation(operation);
+                }
                 if (operation.isFailed()) {
                     // Operation may still have changed the DB, roll back everything
                     failed = true;
                     break;
                 }
-                if (i == mergedOps.size() - 1) {
-                    AsyncOperation peekedOp = queue.peek();
-                    if (i < maxOperationCountToMerge && operation.isMergeableWith(peekedOp)) {
-                        AsyncOperation removedOp = queue.remove();
-                        if (removedOp != peekedOp) {
-                            // Paranoia check, should not occur unless threading is broken
-                            throw new DaoException("Internal error: peeked op did not match removed op");
-                        }
-                        mergedOps.add(removedOp);
-                    } else {
-                        // No more ops in the queue to merge, finish it
-                        db.setTransactionSuccessful();
-                    }
+                if (i == mergedOps.size() - 1 && !pollMergeable(mergedOps)) {
+                    // No more ops in the queue to merge, finish it
+                    db.setTransactionSuccessful();
+                    committed = true;
                 }
             }
         } finally {
             db.endTransaction();
+            // Row counts, table versions, dirty flags, and table changes of writes inside the merged TX were deferred
+            IQueryDaoAccess.InternalQueryDaoAccess.onTxEnded(daoSession, committed);
         }
         if (failed) {
             DaoLog.i("Revered merged transaction because one of the operations failed. Executing operations one by one instead...");
@@ -224,21 +605,124 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
         }
     }
 
+    /**
+     * Moves the next queued operation to the merged ops if it is mergeable with the last one and the merge limit is not
+     * reached yet.
+     * 
+     * @return true if an operation was added
+     */
+    private boolean pollMergeable(List<AsyncOperation> mergedOps) {
+        AsyncOperation removedOp = null;
+        synchronized (this) {
+            // Synchronized with enqueue and cancel, which may change the head of the queue
+            AsyncOperation peekedOp = queue.peek();
+            if (mergedOps.size() <= maxOperationCountToMerge
+                    && mergedOps.get(mergedOps.size() - 1).isMergeableWith(peekedOp)) {
+                removedOp = queue.remove();
+                if (removedOp != peekedOp) {
+                    // Paranoia check, should not occur unless threading is broken
+                    throw new DaoException("Internal error: peeked op did not match removed op");
+                }
+            }
+        }
+        if (removedOp != null) {
+            onDequeued();
+            mergedOps.add(removedOp);
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /** @return true for single entity writes, which have an InTx counterpart to execute several of them at once. */
+    static boolean isCoalescable(OperationType type) {
+        switch (type) {
+        case Insert:
+        case InsertOrReplace:
+        case Update:
+        case Delete:
+        case DeleteByKey:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static boolean isCoalescableWith(AsyncOperation operation, AsyncOperation other) {
+        return other.type == operation.type && other.dao == operation.dao;
+    }
+
+    /**
+     * Executes consecutive single entity writes of the same type and DAO using a single InTx call, which may use
+     * multi-row statements. Each operation gets the outcome of the InTx call. Must be called inside the merged TX;
+     * if it fails, the merged TX is rolled back and the operations are executed one by one.
+     */
+    private void executeCoalesced(List<AsyncOperation> operations) {
+        AsyncOperation first = operations.get(0);
+        List<Object> parameters = new ArrayList<Object>(operations.size());
+        for (AsyncOperation operation : operations) {
+            parameters.add(operation.parameter);
+        }
+        long timeStarted = System.currentTimeMillis();
+        Throwable throwable = null;
+        try {
+            switch (first.type) {
+            case Insert:
+                first.dao.insertInTx(parameters);
+                break;
+            case InsertOrReplace:
+                first.dao.insertOrReplaceInTx(parameters);
+                break;
+            case Update:
+                first.dao.updateInTx(parameters);
+                break;
+            case Delete:
+                first.dao.deleteInTx(parameters);
+                break;
+            case DeleteByKey:
+                first.dao.deleteByKeyInTx(parameters);
+                break;
+            default:
+                throw new DaoException("Unsupported operation for coalescing: " + first.type);
+            }
+        } catch (Throwable th) {
+            throwable = th;
+        }
+        long timeCompleted = System.currentTimeMillis();
+        int count = operations.size();
+        for (AsyncOperation operation : operations) {
+            operation.timeStarted = timeStarted;
+            operation.timeCompleted = timeCompleted;
+            operation.throwable = throwable;
+            operation.coalescedOperationsCount = count;
+        }
+    }
+
     private void handleOperationCompleted(AsyncOperation operation) {
         operation.setCompleted();
+        operation.completeFuture();
 
         AsyncOperationListener listenerToCall = listener;
         if (listenerToCall != null) {
             listenerToCall.onAsyncOperationCompleted(operation);
         }
         if (listenerMainThread != null) {
-            if (handlerMainThread == null) {
-                handlerMainThread = new Handler(Looper.getMainLooper(), this);
+            Handler handler;
+            synchronized (this) {
+                // Both lanes may get here concurrently
+                if (handlerMainThread == null) {
+                    handlerMainThread = new Handler(Looper.getMainLooper(), this);
+                }
+                handler = handlerMainThread;
             }
-            Message msg = handlerMainThread.obtainMessage(1, operation);
-            handlerMainThread.sendMessage(msg);
+            Message msg = handler.obtainMessage(1, operation);
+            handler.sendMessage(msg);
         }
         synchronized (this) {
+            if (!operation.readLane) {
+                pendingWriteSequenceNumbers.get(operation.getPriority()).remove(operation.sequenceNumber);
+                releaseParkedReads();
+            }
             countOperationsCompleted++;
             if (countOperationsCompleted == countOperationsEnqueued) {
                 notifyAll();
@@ -299,10 +783,11 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
                 executeTransactionCallable(operation);
                 break;
             case QueryList:
-                operation.result = ((Query) operation.parameter).list();
+                // The Query is bound to the thread that enqueued it; use its shared version created at that time
+                operation.result = operation.sharedQuery.list();
                 break;
             case QueryUnique:
-                operation.result = ((Query) operation.parameter).unique();
+                operation.result = operation.sharedQuery.unique();
                 break;
             case DeleteByKey:
                 operation.dao.deleteByKey(operation.parameter);
@@ -333,25 +818,45 @@ class AsyncOperationExecutor implements Runnable, Handler.Callback {
     }
 
     private void executeTransactionRunnable(AsyncOperation operation) {
-        SQLiteDatabase db = operation.getDatabase();
-        db.beginTransaction();
-        try {
-            ((Runnable) operation.parameter).run();
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
-        }
+        daoSession.runInTx((Runnable) operation.parameter);
     }
 
     @SuppressWarnings("unchecked")
     private void executeTransactionCallable(AsyncOperation operation) throws Exception {
-        SQLiteDatabase db = operation.getDatabase();
-        db.beginTransaction();
-        try {
-            operation.result = ((Callable<Object>) operation.parameter).call();
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
+        operation.result = daoSession.callInTx((Callable<Object>) operation.parameter);
+    }
+
+    /** Executes reads of the read lane; stops when idle for a second like the write lane. */
+    private class ReadWorker implements Runnable {
+        @Override
+        public void run() {
+            boolean stopped = false;
+            try {
+                while (true) {
+                    AsyncOperation operation = readQueue.poll(1, TimeUnit.SECONDS);
+                    if (operation == null) {
+                        synchronized (AsyncOperationExecutor.this) {
+                            // Check again, this time in synchronized
+                            operation = readQueue.poll();
+                            if (operation == null) {
+                                readThreadsRunning--;
+                                stopped = true;
+                                return;
+                            }
+                        }
+                    }
+                    onDequeued();
+                    executeOperationAndPostCompleted(operation);
+                }
+            } catch (InterruptedException e) {
+                DaoLog.w(Thread.currentThread().getName() + " was interruppted", e);
+            } finally {
+                if (!stopped) {
+                    synchronized (AsyncOperationExecutor.this) {
+                        readThreadsRunning--;
+                    }
+                }
+            }
         }
     }
 
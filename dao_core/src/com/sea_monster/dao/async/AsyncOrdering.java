@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.async;
+
+/**
+ * Ordering guarantees of an {@link AsyncSession} for read operations (queries, loads, counts, and refreshes). Writes
+ * and transactions are always executed one by one, ordered by priority and then by the order they were enqueued.
+ * 
+ * @see AsyncSession#setOrdering(AsyncOrdering)
+ */
+public enum AsyncOrdering {
+    /** All operations are executed one by one in the order they were enqueued; reads do not run in parallel. */
+    Serialized,
+
+    /**
+     * Reads run in parallel to writes and other reads, but only after all writes enqueued before them by the same
+     * AsyncSession have completed, whatever their priority. This is the default.
+     */
+    ReadAfterOwnWrite,
+
+    /**
+     * Like {@link #ReadAfterOwnWrite}, but writes of lower priority than the read are not waited for (see
+     * {@link AsyncOperation#FLAG_PRIORITY_HIGH}), so reads of high priority do not wait for background writes. Such
+     * reads may not see the lower priority writes enqueued before them.
+     */
+    ReadAfterOwnWriteOfPriority,
+
+    /** Reads run in parallel as soon as possible, and may see the database before or after preceding writes. */
+    Unordered
+}
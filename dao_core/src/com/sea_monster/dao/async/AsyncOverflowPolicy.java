@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.async;
+
+/**
+ * What an {@link AsyncSession} does when an operation is enqueued while the queue capacity is reached.
+ * 
+ * @see AsyncSession#setQueueCapacity(int)
+ */
+public enum AsyncOverflowPolicy {
+    /**
+     * The enqueueing thread waits until an operation was taken for execution. Executor threads (running operations,
+     * non main thread listeners, and future callbacks without Executor) do not wait, as they might wait for themselves;
+     * their operations are enqueued beyond the capacity. This is the default.
+     */
+    Block,
+
+    /** The operation is not enqueued; instead, an {@link AsyncDaoException} is thrown. */
+    Fail,
+
+    /**
+     * The oldest queued operation flagged with {@link AsyncOperation#FLAG_PRIORITY_LOW} is removed; it completes with
+     * a {@link java.util.concurrent.CancellationException} and listeners are notified. If no such operation is
+     * queued, the enqueueing thread waits like with {@link #Block}.
+     */
+    DropOldestLow
+}
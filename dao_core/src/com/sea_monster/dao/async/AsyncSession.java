@@ -7,6 +7,7 @@ import com.sea_monster.dao.AbstractDaoSession;
 import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.async.AsyncOperation.OperationType;
 import com.sea_monster.dao.query.Query;
+import com.sea_monster.dao.query.SharedQuery;
 
 /**
  * Asynchronous interface to entity operations. All operations will enqueued a @link {@link AsyncOperation} and return
@@ -25,7 +26,7 @@ public class AsyncSession {
 
     public AsyncSession(AbstractDaoSession daoSession) {
         this.daoSession = daoSession;
-        this.executor = new AsyncOperationExecutor();
+        this.executor = new AsyncOperationExecutor(daoSession);
     }
 
     public int getMaxOperationCountToMerge() {
@@ -60,6 +61,90 @@ public class AsyncSession {
         executor.setListenerMainThread(listenerMainThread);
     }
 
+    public AsyncOrdering getOrdering() {
+        return executor.getOrdering();
+    }
+
+    /**
+     * Sets the ordering guarantees of reads for operations enqueued afterwards; default is
+     * {@link AsyncOrdering#ReadAfterOwnWrite}.
+     */
+    public void setOrdering(AsyncOrdering ordering) {
+        executor.setOrdering(ordering);
+    }
+
+    public int getMaxReadThreads() {
+        return executor.getMaxReadThreads();
+    }
+
+    /** Sets how many reads may be executed in parallel (default: 2); writes are always executed one by one. */
+    public void setMaxReadThreads(int maxReadThreads) {
+        executor.setMaxReadThreads(maxReadThreads);
+    }
+
+    public int getQueueCapacity() {
+        return executor.getQueueCapacity();
+    }
+
+    /**
+     * Limits the count of queued (not yet executing) operations; 0 (the default) for unbounded. When the capacity is
+     * reached, enqueueing more operations applies the overflow policy.
+     * 
+     * @see #setOverflowPolicy(AsyncOverflowPolicy)
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        executor.setQueueCapacity(queueCapacity);
+    }
+
+    public AsyncOverflowPolicy getOverflowPolicy() {
+        return executor.getOverflowPolicy();
+    }
+
+    /** Sets what happens if the queue capacity is reached; default is {@link AsyncOverflowPolicy#Block}. */
+    public void setOverflowPolicy(AsyncOverflowPolicy overflowPolicy) {
+        executor.setOverflowPolicy(overflowPolicy);
+    }
+
+    /** @return count of operations waiting for execution; this is what the queue capacity limits. */
+    public int getQueueDepth() {
+        return executor.getQueueDepth();
+    }
+
+    /** @return count of operations dropped by {@link AsyncOverflowPolicy#DropOldestLow}. */
+    public int getCountOperationsDropped() {
+        return executor.getCountOperationsDropped();
+    }
+
+    /** @return count of operations rejected by {@link AsyncOverflowPolicy#Fail}. */
+    public int getCountOperationsRejected() {
+        return executor.getCountOperationsRejected();
+    }
+
+    /** @return count of writes and transactions waiting for execution. */
+    public int getWriteQueueDepth() {
+        return executor.getWriteQueueDepth();
+    }
+
+    /** @return count of reads waiting for execution, including reads waiting for preceding writes. */
+    public int getReadQueueDepth() {
+        return executor.getReadQueueDepth();
+    }
+
+    /** @return the highest write queue depth observed since creation or {@link #resetQueueStatistics()}. */
+    public int getMaxWriteQueueDepth() {
+        return executor.getMaxWriteQueueDepth();
+    }
+
+    /** @return the highest read queue depth observed since creation or {@link #resetQueueStatistics()}. */
+    public int getMaxReadQueueDepth() {
+        return executor.getMaxReadQueueDepth();
+    }
+
+    /** Resets the highest observed queue depths to the current depths, and the dropped/rejected counts. */
+    public void resetQueueStatistics() {
+        executor.resetQueueStatistics();
+    }
+
     public boolean isCompleted() {
         return executor.isCompleted();
     }
@@ -247,9 +332,13 @@ public class AsyncSession {
         return queryList(query, 0);
     }
 
-    /** Asynchronous version of {@link Query#list()}. */
+    /**
+     * Asynchronous version of {@link Query#list()}. Must be called by the query's owner thread; parameters set
+     * afterwards do not affect the enqueued operation.
+     */
     public AsyncOperation queryList(Query<?> query, int flags) {
-        return enqueueDatabaseOperation(OperationType.QueryList, query, flags);
+        // Executor threads do not own the query
+        return enqueueQueryOperation(OperationType.QueryList, query, query.toShared(), flags);
     }
 
     /** Asynchronous version of {@link Query#unique()}. */
@@ -257,9 +346,38 @@ public class AsyncSession {
         return queryUnique(query, 0);
     }
 
-    /** Asynchronous version of {@link Query#unique()}. */
+    /**
+     * Asynchronous version of {@link Query#unique()}. Must be called by the query's owner thread; parameters set
+     * afterwards do not affect the enqueued operation.
+     */
     public AsyncOperation queryUnique(Query<?> query, int flags) {
-        return enqueueDatabaseOperation(OperationType.QueryUnique, query, flags);
+        return enqueueQueryOperation(OperationType.QueryUnique, query, query.toShared(), flags);
+    }
+
+    /** Asynchronous version of {@link SharedQuery#list(Object...)} using its default parameters. */
+    public AsyncOperation queryList(SharedQuery<?> query) {
+        return queryList(query, 0);
+    }
+
+    /**
+     * Asynchronous version of {@link SharedQuery#list(Object...)} using its default parameters. Unlike
+     * {@link #queryList(Query, int)}, it may be called by any thread, e.g. by {@link AsyncFuture} callbacks.
+     */
+    public AsyncOperation queryList(SharedQuery<?> query, int flags) {
+        return enqueueQueryOperation(OperationType.QueryList, query, query, flags);
+    }
+
+    /** Asynchronous version of {@link SharedQuery#unique(Object...)} using its default parameters. */
+    public AsyncOperation queryUnique(SharedQuery<?> query) {
+        return queryUnique(query, 0);
+    }
+
+    /**
+     * Asynchronous version of {@link SharedQuery#unique(Object...)} using its default parameters. Unlike
+     * {@link #queryUnique(Query, int)}, it may be called by any thread.
+     */
+    public AsyncOperation queryUnique(SharedQuery<?> query, int flags) {
+        return enqueueQueryOperation(OperationType.QueryUnique, query, query, flags);
     }
 
     /** Asynchronous version of {@link AbstractDao#load(Object)}. */
@@ -308,6 +426,14 @@ public class AsyncSession {
         return operation;
     }
 
+    private AsyncOperation enqueueQueryOperation(OperationType type, Object query, SharedQuery<?> sharedQuery,
+            int flags) {
+        AsyncOperation operation = new AsyncOperation(type, daoSession.getDatabase(), query, flags);
+        operation.sharedQuery = sharedQuery;
+        executor.enqueue(operation);
+        return operation;
+    }
+
     private AsyncOperation enqueueEntityOperation(OperationType type, Object entity, int flags) {
         return enqueEntityOperation(type, entity.getClass(), entity, flags);
     }
@@ -50,4 +50,26 @@ public interface IdentityScope<K, T> {
 
     void reserveRoom(int count);
 
+    /**
+     * Removes the entries of entities that were garbage collected (this is also done incrementally when entities are
+     * put).
+     * 
+     * @return number of removed entries
+     */
+    int purge();
+
+    /** Number of entries including those of garbage collected entities not purged yet. */
+    int getEntryCount();
+
+    /**
+     * Number of entries of entities not garbage collected. Locking implementations purge the entries of collected
+     * entities to count them; entities not yet reported by the garbage collector are counted as live.
+     */
+    int getLiveEntryCount();
+
+    /** Snapshot of the statistics; counts the live entries like {@link #getLiveEntryCount()}. */
+    IdentityScopeStats getStats();
+
+    void resetStats();
+
 }
\ No newline at end of file
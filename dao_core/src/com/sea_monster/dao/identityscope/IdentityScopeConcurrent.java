@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.identityscope;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Identity scope for DAOs used by many threads concurrently (see {@link IdentityScopeType#SessionConcurrent}). Backed
+ * by a {@link ConcurrentHashMap}, so lookups never block and writes lock only a segment of the map. Thus the NoLock
+ * methods are thread-safe too, and {@link #lock()} does not exclude other threads: bulk attaches (e.g. when loading a
+ * query result) do not block lookups or other bulk attaches.
+ * 
+ * Like with the other identity scopes, two threads loading the same row at the same time may both create an entity;
+ * the one attached last is kept.
+ * 
+ * @param <K>
+ *            Key
+ * @param <T>
+ *            Entity
+ */
+public class IdentityScopeConcurrent<K, T> implements IdentityScope<K, T> {
+    /** Cleared references purged per put; more than one, so purging keeps up with puts replacing entries. */
+    private static final int PURGE_PER_PUT = 8;
+
+    private final ConcurrentHashMap<K, Reference<T>> map;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong putCount = new AtomicLong();
+    private final AtomicLong purgeCount = new AtomicLong();
+
+    public IdentityScopeConcurrent() {
+        map = new ConcurrentHashMap<K, Reference<T>>();
+    }
+
+    @Override
+    public T get(K key) {
+        Reference<T> ref = map.get(key);
+        T entity = ref != null ? ref.get() : null;
+        if (entity != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return entity;
+    }
+
+    @Override
+    public T getNoLock(K key) {
+        return get(key);
+    }
+
+    @Override
+    public void put(K key, T entity) {
+        purge(PURGE_PER_PUT);
+        map.put(key, new IdentityScopeObject.KeyedReference<K, T>(key, entity, queue));
+        putCount.incrementAndGet();
+    }
+
+    @Override
+    public void putNoLock(K key, T entity) {
+        put(key, entity);
+    }
+
+    @Override
+    public boolean detach(K key, T entity) {
+        Reference<T> ref = map.get(key);
+        // Removes only the reference checked, not one put concurrently
+        return ref != null && entity != null && ref.get() == entity && map.remove(key, ref);
+    }
+
+    @Override
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    @Override
+    public void remove(Iterable<K> keys) {
+        for (K key : keys) {
+            map.remove(key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    /** Does nothing; all methods are thread-safe on their own. */
+    @Override
+    public void lock() {
+    }
+
+    /** Does nothing, see {@link #lock()}. */
+    @Override
+    public void unlock() {
+    }
+
+    @Override
+    public void reserveRoom(int count) {
+        // ConcurrentHashMap does not allow, but purging avoids growing it
+        purge(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int purge() {
+        return purge(Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private int purge(int maxCount) {
+        int purged = 0;
+        IdentityScopeObject.KeyedReference<K, T> ref;
+        while (purged < maxCount && (ref = (IdentityScopeObject.KeyedReference<K, T>) queue.poll()) != null) {
+            // Removes the entry only if it was not replaced
+            if (map.remove(ref.key, ref)) {
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            purgeCount.addAndGet(purged);
+        }
+        return purged;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return map.size();
+    }
+
+    /** Lock waits are always 0; the counters are not updated atomically together. */
+    @Override
+    public IdentityScopeStats getStats() {
+        int entries = map.size();
+        // Rough sizes: map entry with table slot (~36), KeyedReference (~40)
+        return new IdentityScopeStats(hitCount.get(), missCount.get(), putCount.get(), 0, purgeCount.get(), 0, 0,
+                entries, getLiveEntryCount(), 0, entries * 76L);
+    }
+
+    @Override
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+        putCount.set(0);
+        purgeCount.set(0);
+    }
+
+    @Override
+    public int getLiveEntryCount() {
+        int live = 0;
+        for (Reference<T> ref : map.values()) {
+            if (ref.get() != null) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.identityscope;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Counters of a lock based identity scope; guarded by the scope's lock (except for the lock waits, which are counted
+ * right after acquiring it).
+ */
+final class IdentityScopeCounters {
+    long hitCount;
+    long missCount;
+    long putCount;
+    long purgeCount;
+    long lockWaitCount;
+    long lockWaitNanos;
+
+    /** Acquires the lock, measuring the time only if it is held by another thread. */
+    void lock(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            lockWaitNanos += System.nanoTime() - start;
+            lockWaitCount++;
+        }
+    }
+
+    void onLookup(Object entity) {
+        if (entity != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+    }
+
+    IdentityScopeStats createStats(long evictionCount, int entryCount, int liveEntryCount, int strongEntryCount,
+            long estimatedBytes) {
+        return new IdentityScopeStats(hitCount, missCount, putCount, evictionCount, purgeCount, lockWaitCount,
+                lockWaitNanos, entryCount, liveEntryCount, strongEntryCount, estimatedBytes);
+    }
+
+    void reset() {
+        hitCount = 0;
+        missCount = 0;
+        putCount = 0;
+        purgeCount = 0;
+        lockWaitCount = 0;
+        lockWaitNanos = 0;
+    }
+
+}
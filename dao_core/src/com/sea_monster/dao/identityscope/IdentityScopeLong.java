@@ -16,25 +16,53 @@
 package com.sea_monster.dao.identityscope;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.concurrent.locks.ReentrantLock;
 
-import com.sea_monster.dao.internal.LongHashMap;
+import com.sea_monster.dao.internal.LongOpenHashMap;
 
 /**
- * The context for entity identities. Provides the scope in which entities will be tracked and managed.
+ * The context for entity identities. Provides the scope in which entities will be tracked and managed. Optionally keeps
+ * the most recently used entities strongly referenced (see {@link IdentityScopeType#SessionLru}).
  * 
  * @author Markus
  * @param <T>
  *            Entity
  */
 public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
-    private final LongHashMap<Reference<T>> map;
+    /** Knows its key, so the entry can be removed once the entity was garbage collected. */
+    static final class KeyedReference<T> extends WeakReference<T> {
+        final long key;
+
+        KeyedReference(long key, T entity, ReferenceQueue<T> queue) {
+            super(entity, queue);
+            this.key = key;
+        }
+    }
+
+    /** Cleared references purged per put; more than one, so purging keeps up with puts replacing entries. */
+    private static final int PURGE_PER_PUT = 8;
+
+    private final LongOpenHashMap<Reference<T>> map;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
     private final ReentrantLock lock;
+    private final IdentityScopeCounters counters = new IdentityScopeCounters();
+    /** Null without strong LRU tier. */
+    private final StrongReferenceLru<Long, T> strongTier;
 
     public IdentityScopeLong() {
-        map = new LongHashMap<Reference<T>>();
+        this(0);
+    }
+
+    /**
+     * @param strongCapacity
+     *            number of most recently used entities kept strongly referenced, 0 for weak references only
+     */
+    public IdentityScopeLong(int strongCapacity) {
+        map = new LongOpenHashMap<Reference<T>>();
         lock = new ReentrantLock();
+        strongTier = strongCapacity > 0 ? new StrongReferenceLru<Long, T>(strongCapacity) : null;
     }
 
     @Override
@@ -48,27 +76,28 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
     }
 
     public T get2(long key) {
-        lock.lock();
-        Reference<T> ref;
+        // Lookups update the statistics and reorder the LRU tier
+        counters.lock(lock);
         try {
-            ref = map.get(key);
+            return get2NoLock(key);
         } finally {
             lock.unlock();
         }
-        if (ref != null) {
-            return ref.get();
-        } else {
-            return null;
-        }
     }
 
     public T get2NoLock(long key) {
-        Reference<T> ref = map.get(key);
-        if (ref != null) {
-            return ref.get();
-        } else {
-            return null;
+        T entity = strongTier != null ? strongTier.get(key) : null;
+        if (entity == null) {
+            Reference<T> ref = map.get(key);
+            if (ref != null) {
+                entity = ref.get();
+                if (entity != null && strongTier != null) {
+                    strongTier.put(key, entity);
+                }
+            }
         }
+        counters.onLookup(entity);
+        return entity;
     }
 
     @Override
@@ -82,21 +111,26 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
     }
 
     public void put2(long key, T entity) {
-        lock.lock();
+        counters.lock(lock);
         try {
-            map.put(key, new WeakReference<T>(entity));
+            put2NoLock(key, entity);
         } finally {
             lock.unlock();
         }
     }
 
     public void put2NoLock(long key, T entity) {
-        map.put(key, new WeakReference<T>(entity));
+        purgeNoLock(PURGE_PER_PUT);
+        map.put(key, new KeyedReference<T>(key, entity, queue));
+        counters.putCount++;
+        if (strongTier != null) {
+            strongTier.put(key, entity);
+        }
     }
 
     @Override
     public boolean detach(Long key, T entity) {
-        lock.lock();
+        counters.lock(lock);
         try {
             if (get(key) == entity && entity != null) {
                 remove(key);
@@ -111,9 +145,12 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
 
     @Override
     public void remove(Long key) {
-        lock.lock();
+        counters.lock(lock);
         try {
             map.remove(key);
+            if (strongTier != null) {
+                strongTier.remove(key);
+            }
         } finally {
             lock.unlock();
         }
@@ -121,10 +158,28 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
 
     @Override
     public void remove(Iterable<Long> keys) {
-        lock.lock();
+        counters.lock(lock);
         try {
             for (Long key : keys) {
                 map.remove(key);
+                if (strongTier != null) {
+                    strongTier.remove(key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Removes the first count keys of the given array, locking only once. */
+    public void remove2(long[] keys, int count) {
+        counters.lock(lock);
+        try {
+            for (int i = 0; i < count; i++) {
+                map.remove(keys[i]);
+                if (strongTier != null) {
+                    strongTier.remove(keys[i]);
+                }
             }
         } finally {
             lock.unlock();
@@ -133,9 +188,12 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
 
     @Override
     public void clear() {
-        lock.lock();
+        counters.lock(lock);
         try {
             map.clear();
+            if (strongTier != null) {
+                strongTier.clear();
+            }
         } finally {
             lock.unlock();
         }
@@ -143,7 +201,7 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
 
     @Override
     public void lock() {
-        lock.lock();
+        counters.lock(lock);
     }
 
     @Override
@@ -153,7 +211,92 @@ public class IdentityScopeLong<T> implements IdentityScope<Long, T> {
 
     @Override
     public void reserveRoom(int count) {
+        // Make room by purging first, the map may not need to grow then
+        purgeNoLock(Integer.MAX_VALUE);
         map.reserveRoom(count);
     }
 
+    @Override
+    public int purge() {
+        counters.lock(lock);
+        try {
+            return purgeNoLock(Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int purgeNoLock(int maxCount) {
+        int purged = 0;
+        KeyedReference<T> ref;
+        while (purged < maxCount && (ref = (KeyedReference<T>) queue.poll()) != null) {
+            // The entry may have been replaced or removed already
+            if (map.get(ref.key) == ref) {
+                map.remove(ref.key);
+                purged++;
+            }
+        }
+        counters.purgeCount += purged;
+        return purged;
+    }
+
+    @Override
+    public int getEntryCount() {
+        counters.lock(lock);
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getLiveEntryCount() {
+        counters.lock(lock);
+        try {
+            return getLiveEntryCountNoLock();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries of collected entities are purged once the garbage collector enqueued their references, so the live
+     * entries are counted without iterating over all entries while holding the lock.
+     */
+    private int getLiveEntryCountNoLock() {
+        purgeNoLock(Integer.MAX_VALUE);
+        return map.size();
+    }
+
+    @Override
+    public IdentityScopeStats getStats() {
+        counters.lock(lock);
+        try {
+            int entries = map.size();
+            int liveEntries = getLiveEntryCountNoLock();
+            int strongEntries = strongTier != null ? strongTier.size() : 0;
+            long evictions = strongTier != null ? strongTier.getEvictionCount() : 0;
+            // Rough sizes: slot (long key and value, 12), KeyedReference (~40), LinkedHashMap entry with Long (~60)
+            long bytes = map.capacity() * 12L + entries * 40L + strongEntries * 60L;
+            return counters.createStats(evictions, entries, liveEntries, strongEntries, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void resetStats() {
+        counters.lock(lock);
+        try {
+            counters.reset();
+            if (strongTier != null) {
+                strongTier.resetEvictionCount();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
 }
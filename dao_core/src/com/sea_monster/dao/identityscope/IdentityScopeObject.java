@@ -16,57 +16,86 @@
 package com.sea_monster.dao.identityscope;
 
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * The context for entity identities. Provides the scope in which entities will be tracked and managed.
+ * The context for entity identities. Provides the scope in which entities will be tracked and managed. Optionally keeps
+ * the most recently used entities strongly referenced (see {@link IdentityScopeType#SessionLru}).
  * 
  * @author Markus
  * @param <K>
  * @param <T>
  */
 public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
+    /** Knows its key, so the entry can be removed once the entity was garbage collected. */
+    static final class KeyedReference<K, T> extends WeakReference<T> {
+        final K key;
+
+        KeyedReference(K key, T entity, ReferenceQueue<T> queue) {
+            super(entity, queue);
+            this.key = key;
+        }
+    }
+
+    /** Cleared references purged per put; more than one, so purging keeps up with puts replacing entries. */
+    private static final int PURGE_PER_PUT = 8;
+
     private final HashMap<K, Reference<T>> map;
+    private final ReferenceQueue<T> queue = new ReferenceQueue<T>();
     private final ReentrantLock lock;
+    private final IdentityScopeCounters counters = new IdentityScopeCounters();
+    /** Null without strong LRU tier. */
+    private final StrongReferenceLru<K, T> strongTier;
 
     public IdentityScopeObject() {
+        this(0);
+    }
+
+    /**
+     * @param strongCapacity
+     *            number of most recently used entities kept strongly referenced, 0 for weak references only
+     */
+    public IdentityScopeObject(int strongCapacity) {
         map = new HashMap<K, Reference<T>>();
         lock = new ReentrantLock();
+        strongTier = strongCapacity > 0 ? new StrongReferenceLru<K, T>(strongCapacity) : null;
     }
 
     @Override
     public T get(K key) {
-        Reference<T> ref;
-        lock.lock();
+        // Lookups update the statistics and reorder the LRU tier
+        counters.lock(lock);
         try {
-            ref = map.get(key);
+            return getNoLock(key);
         } finally {
             lock.unlock();
         }
-        if (ref != null) {
-            return ref.get();
-        } else {
-            return null;
-        }
     }
 
     @Override
     public T getNoLock(K key) {
-        Reference<T> ref = map.get(key);
-        if (ref != null) {
-            return ref.get();
-        } else {
-            return null;
+        T entity = strongTier != null ? strongTier.get(key) : null;
+        if (entity == null) {
+            Reference<T> ref = map.get(key);
+            if (ref != null) {
+                entity = ref.get();
+                if (entity != null && strongTier != null) {
+                    strongTier.put(key, entity);
+                }
+            }
         }
+        counters.onLookup(entity);
+        return entity;
     }
 
     @Override
     public void put(K key, T entity) {
-        lock.lock();
+        counters.lock(lock);
         try {
-            map.put(key, new WeakReference<T>(entity));
+            putNoLock(key, entity);
         } finally {
             lock.unlock();
         }
@@ -74,12 +103,17 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
 
     @Override
     public void putNoLock(K key, T entity) {
-        map.put(key, new WeakReference<T>(entity));
+        purgeNoLock(PURGE_PER_PUT);
+        map.put(key, new KeyedReference<K, T>(key, entity, queue));
+        counters.putCount++;
+        if (strongTier != null) {
+            strongTier.put(key, entity);
+        }
     }
 
     @Override
     public boolean detach(K key, T entity) {
-        lock.lock();
+        counters.lock(lock);
         try {
             if (get(key) == entity && entity != null) {
                 remove(key);
@@ -94,9 +128,12 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
 
     @Override
     public void remove(K key) {
-        lock.lock();
+        counters.lock(lock);
         try {
             map.remove(key);
+            if (strongTier != null) {
+                strongTier.remove(key);
+            }
         } finally {
             lock.unlock();
         }
@@ -104,10 +141,13 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
     
     @Override
     public void remove(Iterable< K> keys) {
-        lock.lock();
+        counters.lock(lock);
         try {
             for (K key : keys) {
                 map.remove(key);
+                if (strongTier != null) {
+                    strongTier.remove(key);
+                }
             }
         } finally {
             lock.unlock();
@@ -116,9 +156,12 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
 
     @Override
     public void clear() {
-        lock.lock();
+        counters.lock(lock);
         try {
             map.clear();
+            if (strongTier != null) {
+                strongTier.clear();
+            }
         } finally {
             lock.unlock();
         }
@@ -126,7 +169,7 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
 
     @Override
     public void lock() {
-        lock.lock();
+        counters.lock(lock);
     }
 
     @Override
@@ -136,7 +179,91 @@ public class IdentityScopeObject<K, T> implements IdentityScope<K, T> {
 
     @Override
     public void reserveRoom(int count) {
-        // HashMap does not allow
+        // HashMap does not allow, but purging avoids growing it
+        purgeNoLock(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int purge() {
+        counters.lock(lock);
+        try {
+            return purgeNoLock(Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int purgeNoLock(int maxCount) {
+        int purged = 0;
+        KeyedReference<K, T> ref;
+        while (purged < maxCount && (ref = (KeyedReference<K, T>) queue.poll()) != null) {
+            // The entry may have been replaced or removed already
+            if (map.get(ref.key) == ref) {
+                map.remove(ref.key);
+                purged++;
+            }
+        }
+        counters.purgeCount += purged;
+        return purged;
+    }
+
+    @Override
+    public int getEntryCount() {
+        counters.lock(lock);
+        try {
+            return map.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int getLiveEntryCount() {
+        counters.lock(lock);
+        try {
+            return getLiveEntryCountNoLock();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Entries of collected entities are purged once the garbage collector enqueued their references, so the live
+     * entries are counted without iterating over all entries while holding the lock.
+     */
+    private int getLiveEntryCountNoLock() {
+        purgeNoLock(Integer.MAX_VALUE);
+        return map.size();
+    }
+
+    @Override
+    public IdentityScopeStats getStats() {
+        counters.lock(lock);
+        try {
+            int entries = map.size();
+            int liveEntries = getLiveEntryCountNoLock();
+            int strongEntries = strongTier != null ? strongTier.size() : 0;
+            long evictions = strongTier != null ? strongTier.getEvictionCount() : 0;
+            // Rough sizes: HashMap entry with table slot (~36), KeyedReference (~40), LinkedHashMap entry (~44)
+            long bytes = entries * 76L + strongEntries * 44L;
+            return counters.createStats(evictions, entries, liveEntries, strongEntries, bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void resetStats() {
+        counters.lock(lock);
+        try {
+            counters.reset();
+            if (strongTier != null) {
+                strongTier.resetEvictionCount();
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
 }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.identityscope;
+
+import java.util.Collection;
+
+/**
+ * Snapshot of an identity scope's statistics (see {@link IdentityScope#getStats()}): lookups, puts, removals of
+ * entries by the LRU tier (evictions) and of garbage collected entities (purges), time spent waiting for the lock, and
+ * the entry counts. Counters accumulate since the scope was created or its statistics were reset.
+ * 
+ * The estimated size covers the scope's own structures (map slots, references, LRU entries), but not the entities
+ * and keys, which are referenced by the app as well.
+ */
+public final class IdentityScopeStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long putCount;
+    private final long evictionCount;
+    private final long purgeCount;
+    private final long lockWaitCount;
+    private final long lockWaitNanos;
+    private final int entryCount;
+    private final int liveEntryCount;
+    private final int strongEntryCount;
+    private final long estimatedBytes;
+
+    public IdentityScopeStats(long hitCount, long missCount, long putCount, long evictionCount, long purgeCount,
+            long lockWaitCount, long lockWaitNanos, int entryCount, int liveEntryCount, int strongEntryCount,
+            long estimatedBytes) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.putCount = putCount;
+        this.evictionCount = evictionCount;
+        this.purgeCount = purgeCount;
+        this.lockWaitCount = lockWaitCount;
+        this.lockWaitNanos = lockWaitNanos;
+        this.entryCount = entryCount;
+        this.liveEntryCount = liveEntryCount;
+        this.strongEntryCount = strongEntryCount;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /** Sums up the given statistics, e.g. of all DAOs of a session. */
+    public static IdentityScopeStats sum(Collection<IdentityScopeStats> stats) {
+        long hits = 0, misses = 0, puts = 0, evictions = 0, purges = 0, lockWaits = 0, lockWaitNanos = 0, bytes = 0;
+        int entries = 0, liveEntries = 0, strongEntries = 0;
+        for (IdentityScopeStats stat : stats) {
+            hits += stat.hitCount;
+            misses += stat.missCount;
+            puts += stat.putCount;
+            evictions += stat.evictionCount;
+            purges += stat.purgeCount;
+            lockWaits += stat.lockWaitCount;
+            lockWaitNanos += stat.lockWaitNanos;
+            entries += stat.entryCount;
+            liveEntries += stat.liveEntryCount;
+            strongEntries += stat.strongEntryCount;
+            bytes += stat.estimatedBytes;
+        }
+        return new IdentityScopeStats(hits, misses, puts, evictions, purges, lockWaits, lockWaitNanos, entries,
+                liveEntries, strongEntries, bytes);
+    }
+
+    /** Lookups finding an entity. */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /** Lookups not finding an entity (also if it was garbage collected). */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /** Hits per lookup, 0 without lookups. */
+    public float getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups > 0 ? ((float) hitCount) / lookups : 0;
+    }
+
+    public long getPutCount() {
+        return putCount;
+    }
+
+    /** Entities dropped from the strong LRU tier (see {@link IdentityScopeType#SessionLru}). */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Entries removed because their entity was garbage collected. */
+    public long getPurgeCount() {
+        return purgeCount;
+    }
+
+    /** Number of times a thread had to wait for the scope's lock. */
+    public long getLockWaitCount() {
+        return lockWaitCount;
+    }
+
+    /** Total time threads waited for the scope's lock. */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public int getLiveEntryCount() {
+        return liveEntryCount;
+    }
+
+    /** Entries of garbage collected entities not purged yet. */
+    public int getDeadEntryCount() {
+        return entryCount - liveEntryCount;
+    }
+
+    /** Entities held by the strong LRU tier. */
+    public int getStrongEntryCount() {
+        return strongEntryCount;
+    }
+
+    /** Rough size of the scope's structures in bytes, excluding entities and keys. */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "IdentityScopeStats[hits=" + hitCount + ", misses=" + missCount + ", puts=" + putCount + ", evictions="
+                + evictionCount + ", purges=" + purgeCount + ", lockWaits=" + lockWaitCount + ", lockWaitMillis="
+                + lockWaitNanos / 1000000 + ", entries=" + entryCount + ", live=" + liveEntryCount + ", strong="
+                + strongEntryCount + ", bytes~" + estimatedBytes + "]";
+    }
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.identityscope;
+
+import java.util.Map;
+
+/**
+ * Receives identity scope statistics periodically (see
+ * {@link com.sea_monster.dao.AbstractDaoSession#startIdentityScopeStatsReporting(IdentityScopeStatsListener, long)}).
+ * Called in a background thread.
+ */
+public interface IdentityScopeStatsListener {
+    /**
+     * @param statsByEntity
+     *            statistics per entity class of DAOs with identity scope
+     * @param total
+     *            sum of all statistics
+     */
+    void onIdentityScopeStats(Map<Class<?>, IdentityScopeStats> statsByEntity, IdentityScopeStats total);
+}
@@ -15,6 +15,16 @@
  */
 package com.sea_monster.dao.identityscope;
 
+/**
+ * Session: entities are tracked by weak references only and may be garbage collected once the app does not reference
+ * them anymore.<br/>
+ * SessionLru: like Session, but the most recently used entities (up to the DAO's capacity, see
+ * {@link com.sea_monster.dao.internal.DaoConfig#initIdentityScope(IdentityScopeType, int)}) are also held strongly,
+ * so they are not reloaded from the database after the app released them.<br/>
+ * SessionConcurrent: like Session, but lookups never block and loading query results does not lock out other threads
+ * (see {@link IdentityScopeConcurrent}); for DAOs read by many threads at the same time.<br/>
+ * None: no identity scope.
+ */
 public enum IdentityScopeType {
-    Session, None
+    Session, SessionLru, SessionConcurrent, None
 }
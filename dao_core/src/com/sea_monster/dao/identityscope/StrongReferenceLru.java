@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.identityscope;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Strong references to the most recently used entities of an identity scope, kept in front of its weak references.
+ * Not thread-safe; guarded by the identity scope's lock.
+ */
+class StrongReferenceLru<K, T> extends LinkedHashMap<K, T> {
+    private static final long serialVersionUID = 1L;
+
+    private final int capacity;
+    private long evictionCount;
+
+    StrongReferenceLru(int capacity) {
+        super(16, 0.75f, true);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getEvictionCount() {
+        return evictionCount;
+    }
+
+    void resetEvictionCount() {
+        evictionCount = 0;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, T> eldest) {
+        if (size() > capacity) {
+            evictionCount++;
+            return true;
+        }
+        return false;
+    }
+
+}
@@ -25,7 +25,9 @@ import java.util.List;
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.Property;
+import com.sea_monster.dao.RowCountMode;
 import com.sea_monster.dao.identityscope.IdentityScope;
+import com.sea_monster.dao.identityscope.IdentityScopeConcurrent;
 import com.sea_monster.dao.identityscope.IdentityScopeLong;
 import com.sea_monster.dao.identityscope.IdentityScopeObject;
 import com.sea_monster.dao.identityscope.IdentityScopeType;
@@ -48,8 +50,17 @@ public final class DaoConfig implements Cloneable {
     public final Property pkProperty;
     public final boolean keyIsNumeric;
     public final TableStatements statements;
+    /** Shared by clones, so cached results are outdated by writes of any session. */
+    public final TableVersion tableVersion;
+
+    /** Entities kept strongly referenced by {@link IdentityScopeType#SessionLru} unless set otherwise. */
+    public static final int DEFAULT_IDENTITY_SCOPE_CAPACITY = 256;
 
     private IdentityScope<?, ?> identityScope;
+    private int identityScopeCapacity = DEFAULT_IDENTITY_SCOPE_CAPACITY;
+
+    /** Shared by clones, so all sessions see the same count. */
+    private RowCounter rowCounter;
 
     public DaoConfig(SQLiteDatabase db, Class<? extends AbstractDao<?, ?>> daoClass) {
         this.db = db;
@@ -81,6 +92,7 @@ public final class DaoConfig implements Cloneable {
 
             pkProperty = pkColumns.length == 1 ? lastPkProperty : null;
             statements = new TableStatements(db, tablename, allColumns, pkColumns);
+            tableVersion = new TableVersion(db);
 
             if (pkProperty != null) {
                 Class<?> type = pkProperty.type;
@@ -133,7 +145,10 @@ public final class DaoConfig implements Cloneable {
         nonPkColumns = source.nonPkColumns;
         pkProperty = source.pkProperty;
         statements = source.statements;
+        tableVersion = source.tableVersion;
         keyIsNumeric = source.keyIsNumeric;
+        rowCounter = source.rowCounter;
+        identityScopeCapacity = source.identityScopeCapacity;
     }
 
     /** Does not copy identity scope. */
@@ -150,16 +165,63 @@ public final class DaoConfig implements Cloneable {
         this.identityScope = identityScope;
     }
 
-    @SuppressWarnings("rawtypes")
+    /** Row counter or null for {@link RowCountMode#None}. */
+    public RowCounter getRowCounter() {
+        return rowCounter;
+    }
+
+    /**
+     * Must be called before DAOs (sessions) are created using this config or its clones. Modes other than
+     * {@link RowCountMode#Trigger} drop the triggers of that mode if present.
+     */
+    public void initRowCountMode(RowCountMode mode) {
+        if (mode != RowCountMode.Trigger) {
+            RowCounter.uninstallTriggers(db, tablename);
+        }
+        if (mode == RowCountMode.None) {
+            rowCounter = null;
+        } else {
+            rowCounter = new RowCounter(mode, db, tablename, statements);
+        }
+    }
+
+    /** Capacity used by {@link #initIdentityScope(IdentityScopeType)} (also for clones created afterwards). */
+    public void setIdentityScopeCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        identityScopeCapacity = capacity;
+    }
+
+    public int getIdentityScopeCapacity() {
+        return identityScopeCapacity;
+    }
+
     public void initIdentityScope(IdentityScopeType type) {
+        initIdentityScope(type, identityScopeCapacity);
+    }
+
+    /**
+     * @param capacity
+     *            number of most recently used entities kept strongly referenced by {@link IdentityScopeType#SessionLru};
+     *            ignored by other types
+     */
+    @SuppressWarnings("rawtypes")
+    public void initIdentityScope(IdentityScopeType type, int capacity) {
         if (type == IdentityScopeType.None) {
             identityScope = null;
-        } else if (type == IdentityScopeType.Session) {
+        } else if (type == IdentityScopeType.Session || type == IdentityScopeType.SessionLru) {
+            if (type == IdentityScopeType.SessionLru && capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+            }
+            int strongCapacity = type == IdentityScopeType.SessionLru ? capacity : 0;
             if (keyIsNumeric) {
-                identityScope = new IdentityScopeLong();
+                identityScope = new IdentityScopeLong(strongCapacity);
             } else {
-                identityScope = new IdentityScopeObject();
+                identityScope = new IdentityScopeObject(strongCapacity);
             }
+        } else if (type == IdentityScopeType.SessionConcurrent) {
+            identityScope = new IdentityScopeConcurrent();
         } else {
             throw new IllegalArgumentException("Unsupported type: " + type);
         }
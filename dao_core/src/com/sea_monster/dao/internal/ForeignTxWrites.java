@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.internal;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Internal class used by greenDAO. Threads that wrote inside a TX not started by the DAO (e.g. by the session or
+ * directly on the database), which may still be rolled back. Used by {@link RowCounter} and {@link TableVersion}; not
+ * thread-safe, callers synchronize on their owner.
+ *
+ * A thread's write is considered done once that thread is outside of a TX again, whether the owner was notified about
+ * the TX end or not (e.g. for TXs started directly on the database): ended TXs are detected by
+ * {@link #removeEnded()} on the next check of the writing thread, or once the writing thread terminated.
+ */
+final class ForeignTxWrites {
+    private final SQLiteDatabase db;
+    private final List<Thread> writers = new ArrayList<Thread>();
+
+    ForeignTxWrites(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * Must be called before a write of the calling thread.
+     * 
+     * @return true if the write is inside a foreign TX and was recorded
+     */
+    boolean onWrite() {
+        if (!db.inTransaction()) {
+            return false;
+        }
+        Thread thread = Thread.currentThread();
+        if (!writers.contains(thread)) {
+            writers.add(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the writes of the calling thread if it is outside of a TX, and those of terminated threads.
+     * 
+     * @return true if writes were removed; their TXs may have committed
+     */
+    boolean removeEnded() {
+        if (writers.isEmpty()) {
+            return false;
+        }
+        Thread current = Thread.currentThread();
+        boolean currentInTx = db.inTransaction();
+        boolean removed = false;
+        for (Iterator<Thread> iterator = writers.iterator(); iterator.hasNext();) {
+            Thread thread = iterator.next();
+            if ((thread == current && !currentInTx) || !thread.isAlive()) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /** True if writes of foreign TXs may still be pending; call {@link #removeEnded()} before. */
+    boolean isPending() {
+        return !writers.isEmpty();
+    }
+
+    /** Forgets all writes, e.g. when the owner's state is reset explicitly. */
+    void clear() {
+        writers.clear();
+    }
+
+}
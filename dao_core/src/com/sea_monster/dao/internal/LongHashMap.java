@@ -146,9 +146,12 @@ public final class LongHashMap<T> {
         threshold = newCapacity * 4 / 3;
     }
 
-    /** Target load: 0,6 */
+    /** Target load: 0,6; never shrinks the table. */
     public void reserveRoom(int entryCount) {
-        setCapacity(entryCount * 5 / 3);
+        int newCapacity = entryCount * 5 / 3;
+        if (newCapacity > capacity) {
+            setCapacity(newCapacity);
+        }
     }
 
     public void logStats() {
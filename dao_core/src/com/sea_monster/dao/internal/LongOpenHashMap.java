@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.internal;
+
+import java.util.Arrays;
+
+import com.sea_monster.dao.DaoLog;
+
+/**
+ * A hash map for long keys using open addressing: keys and values are kept in parallel arrays, so a put does not
+ * allocate an entry object. The capacity is a power of two, so slots are found by masking a mixed hash. Collisions are
+ * resolved by linear probing; removals shift the following entries back instead of leaving tombstones, so lookups
+ * never slow down after many removals.
+ * 
+ * Null values are not supported (a null value marks an empty slot). Not thread-safe.
+ * 
+ * @param <T>
+ *            The class to store.
+ */
+public final class LongOpenHashMap<T> {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+
+    public LongOpenHashMap() {
+        this(16);
+    }
+
+    /** @param capacity initial number of slots, rounded up to a power of two */
+    public LongOpenHashMap(int capacity) {
+        allocate(tableSizeFor(capacity));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        // Load factor 0.75
+        threshold = capacity - (capacity >> 2);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = 2;
+        while (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /** Spreads the key bits, so sequential keys and keys differing only in their upper bits are masked to few slots. */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** @return slot of the key, or -1 */
+    private int indexOf(long key) {
+        int index = hash(key) & mask;
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(long key) {
+        int index = hash(key) & mask;
+        Object value;
+        while ((value = values[index]) != null) {
+            if (keys[index] == key) {
+                return (T) value;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T put(long key, T value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int index = hash(key) & mask;
+        Object oldValue;
+        while ((oldValue = values[index]) != null) {
+            if (keys[index] == key) {
+                values[index] = value;
+                return (T) oldValue;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        if (size > threshold) {
+            setCapacity(keys.length * 2);
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T remove(long key) {
+        int index = indexOf(key);
+        if (index == -1) {
+            return null;
+        }
+        T oldValue = (T) values[index];
+        removeAt(index);
+        size--;
+        return oldValue;
+    }
+
+    /**
+     * Empties the given slot by moving back following entries of the probe sequence that may not be skipped (backward
+     * shift deletion).
+     */
+    private void removeAt(int index) {
+        int free = index;
+        int current = (index + 1) & mask;
+        while (values[current] != null) {
+            int ideal = hash(keys[current]) & mask;
+            // The entry may move to the free slot unless its ideal slot lies between the free slot and itself
+            if (((current - ideal) & mask) >= ((current - free) & mask)) {
+                keys[free] = keys[current];
+                values[free] = values[current];
+                free = current;
+            }
+            current = (current + 1) & mask;
+        }
+        keys[free] = 0;
+        values[free] = null;
+    }
+
+    public void clear() {
+        size = 0;
+        Arrays.fill(values, null);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Number of slots; use with {@link #valueAt(int)} to iterate over the values. */
+    public int capacity() {
+        return values.length;
+    }
+
+    /** Value of the given slot, or null if the slot is empty. */
+    @SuppressWarnings("unchecked")
+    public T valueAt(int slot) {
+        return (T) values[slot];
+    }
+
+    /** Rehashes into the given number of slots (rounded up to a power of two); ignored if entries would not fit. */
+    public void setCapacity(int newCapacity) {
+        int capacity = tableSizeFor(newCapacity);
+        if (capacity - (capacity >> 2) < size || capacity == keys.length) {
+            return;
+        }
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            Object value = oldValues[i];
+            if (value != null) {
+                long key = oldKeys[i];
+                int index = hash(key) & mask;
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = value;
+            }
+        }
+    }
+
+    /** Grows the map to hold the given number of entries without rehashing; never shrinks it. */
+    public void reserveRoom(int entryCount) {
+        if (entryCount > threshold) {
+            // Load factor 0.75 after growing
+            setCapacity(entryCount + entryCount / 3 + 1);
+        }
+    }
+
+    public void logStats() {
+        long probes = 0;
+        int maxProbes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                int distance = (i - (hash(keys[i]) & mask)) & mask;
+                probes += distance;
+                maxProbes = Math.max(maxProbes, distance);
+            }
+        }
+        DaoLog.d("load: " + ((float) size) / keys.length + ", size: " + size + ", capa: " + keys.length
+                + ", avg probe distance: " + ((float) probes) / size + ", max probe distance: " + maxProbes);
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.internal;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Internal class used by greenDAO. Query parameters kept in typed slots (long, double, string, blob, or null), so they
+ * can be bound to compiled statements and cursor queries without converting them to Strings first.
+ *
+ * Not thread-safe; each query instance owns its parameters.
+ */
+public final class QueryParameters implements SQLiteDatabase.CursorFactory {
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_BLOB = 4;
+
+    private final byte[] types;
+    private final long[] longValues;
+    private final double[] doubleValues;
+    /** String or byte[] values. */
+    private final Object[] objectValues;
+
+    public QueryParameters(int count) {
+        types = new byte[count];
+        longValues = new long[count];
+        doubleValues = new double[count];
+        objectValues = new Object[count];
+    }
+
+    public static QueryParameters create(Object[] values) {
+        QueryParameters parameters = new QueryParameters(values.length);
+        for (int i = 0; i < values.length; i++) {
+            parameters.set(i, values[i]);
+        }
+        return parameters;
+    }
+
+    public int size() {
+        return types.length;
+    }
+
+    /**
+     * Sets the parameter at the given (0 based) index. Integral numbers, booleans (1 or 0), and dates (milliseconds) are
+     * stored as long, floating point numbers as double, byte arrays as blob, and any other object as its String.
+     */
+    public void set(int index, Object value) {
+        if (value == null) {
+            setNull(index);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            setLong(index, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            setDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof String) {
+            setString(index, (String) value);
+        } else if (value instanceof Boolean) {
+            setLong(index, ((Boolean) value) ? 1 : 0);
+        } else if (value instanceof Date) {
+            setLong(index, ((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            setBlob(index, (byte[]) value);
+        } else {
+            setString(index, value.toString());
+        }
+    }
+
+    public void setNull(int index) {
+        types[index] = TYPE_NULL;
+        objectValues[index] = null;
+    }
+
+    public void setLong(int index, long value) {
+        types[index] = TYPE_LONG;
+        longValues[index] = value;
+        objectValues[index] = null;
+    }
+
+    public void setDouble(int index, double value) {
+        types[index] = TYPE_DOUBLE;
+        doubleValues[index] = value;
+        objectValues[index] = null;
+    }
+
+    public void setString(int index, String value) {
+        if (value == null) {
+            setNull(index);
+        } else {
+            types[index] = TYPE_STRING;
+            objectValues[index] = value;
+        }
+    }
+
+    public void setBlob(int index, byte[] value) {
+        if (value == null) {
+            setNull(index);
+        } else {
+            types[index] = TYPE_BLOB;
+            objectValues[index] = value;
+        }
+    }
+
+    /** Returns the parameter at the given index as Long, Double, String, byte[], or null. */
+    public Object get(int index) {
+        switch (types[index]) {
+        case TYPE_LONG:
+            return longValues[index];
+        case TYPE_DOUBLE:
+            return doubleValues[index];
+        default:
+            return objectValues[index];
+        }
+    }
+
+    /** Copies all parameters of the given source, which must have the same size. */
+    public void copyFrom(QueryParameters source) {
+        int count = types.length;
+        System.arraycopy(source.types, 0, types, 0, count);
+        System.arraycopy(source.longValues, 0, longValues, 0, count);
+        System.arraycopy(source.doubleValues, 0, doubleValues, 0, count);
+        System.arraycopy(source.objectValues, 0, objectValues, 0, count);
+    }
+
+    public QueryParameters copy() {
+        QueryParameters copy = new QueryParameters(types.length);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /** Binds all parameters to the given statement or query (1 based SQLite indexes). */
+    public void bindTo(SQLiteProgram program) {
+        for (int i = 0; i < types.length; i++) {
+            int sqlIndex = i + 1;
+            switch (types[i]) {
+            case TYPE_LONG:
+                program.bindLong(sqlIndex, longValues[i]);
+                break;
+            case TYPE_DOUBLE:
+                program.bindDouble(sqlIndex, doubleValues[i]);
+                break;
+            case TYPE_STRING:
+                program.bindString(sqlIndex, (String) objectValues[i]);
+                break;
+            case TYPE_BLOB:
+                program.bindBlob(sqlIndex, (byte[]) objectValues[i]);
+                break;
+            default:
+                program.bindNull(sqlIndex);
+            }
+        }
+    }
+
+    /** Runs the given SQL as a cursor query with the parameters bound by their types. */
+    public Cursor rawQuery(SQLiteDatabase db, String sql) {
+        return db.rawQueryWithFactory(this, sql, null, null);
+    }
+
+    /** Called by {@link SQLiteDatabase#rawQueryWithFactory} to bind the parameters to the compiled query. */
+    @SuppressWarnings("deprecation")
+    @Override
+    public Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query) {
+        bindTo(query);
+        // Deprecated since API 11, but the replacement is not available on older devices
+        return new SQLiteCursor(db, masterQuery, editTable, query);
+    }
+
+    /** Equal if all parameters have the same types and values; allows using (a copy of) parameters as a cache key. */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof QueryParameters)) {
+            return false;
+        }
+        QueryParameters other = (QueryParameters) obj;
+        if (!Arrays.equals(types, other.types)) {
+            return false;
+        }
+        for (int i = 0; i < types.length; i++) {
+            switch (types[i]) {
+            case TYPE_LONG:
+                if (longValues[i] != other.longValues[i]) {
+                    return false;
+                }
+                break;
+            case TYPE_DOUBLE:
+                if (Double.doubleToLongBits(doubleValues[i]) != Double.doubleToLongBits(other.doubleValues[i])) {
+                    return false;
+                }
+                break;
+            case TYPE_STRING:
+                if (!objectValues[i].equals(other.objectValues[i])) {
+                    return false;
+                }
+                break;
+            case TYPE_BLOB:
+                if (!Arrays.equals((byte[]) objectValues[i], (byte[]) other.objectValues[i])) {
+                    return false;
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = types.length;
+        for (int i = 0; i < types.length; i++) {
+            int valueHash;
+            switch (types[i]) {
+            case TYPE_LONG:
+                valueHash = (int) (longValues[i] ^ (longValues[i] >>> 32));
+                break;
+            case TYPE_DOUBLE:
+                long bits = Double.doubleToLongBits(doubleValues[i]);
+                valueHash = (int) (bits ^ (bits >>> 32));
+                break;
+            case TYPE_STRING:
+                valueHash = objectValues[i].hashCode();
+                break;
+            case TYPE_BLOB:
+                valueHash = Arrays.hashCode((byte[]) objectValues[i]);
+                break;
+            default:
+                valueHash = 0;
+            }
+            hash = 31 * hash + types[i] + valueHash;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            Object value = get(i);
+            builder.append(value instanceof byte[] ? "<blob>" : value);
+        }
+        return builder.append(']').toString();
+    }
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.internal;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.sea_monster.dao.RowCountMode;
+
+/**
+ * Internal class used by greenDAO. Row count of a table for {@link RowCountMode#InMemory} and
+ * {@link RowCountMode#Trigger}; shared by all DAOs of the table (see {@link DaoConfig#initRowCountMode(RowCountMode)}).
+ *
+ * In memory, writes are bracketed by {@link #beginWrite()} and {@link #endWrite(long)}. A counted value is only cached
+ * if no write was in progress or completed while counting, so a concurrent commit is never applied twice.
+ */
+public final class RowCounter {
+    /** Delta for writes with unknown effect on the row count (or that failed); marks the count stale. */
+    public static final long UNKNOWN_DELTA = Long.MIN_VALUE;
+
+    /** Counter table of {@link RowCountMode#Trigger}. */
+    public static final String COUNTER_TABLENAME = "DAO_ROW_COUNT";
+
+    private final RowCountMode mode;
+    private final SQLiteDatabase db;
+    private final String tablename;
+    private final TableStatements statements;
+
+    private long count;
+    private boolean valid;
+    private int writersInProgress;
+    private long generation;
+    /** Written inside TXs not started by the DAO, which may still be rolled back. */
+    private final ForeignTxWrites foreignTxWrites;
+
+    public RowCounter(RowCountMode mode, SQLiteDatabase db, String tablename, TableStatements statements) {
+        if (mode != RowCountMode.InMemory && mode != RowCountMode.Trigger) {
+            throw new IllegalArgumentException("Unsupported mode: " + mode);
+        }
+        this.mode = mode;
+        this.db = db;
+        this.tablename = tablename;
+        this.statements = statements;
+        foreignTxWrites = new ForeignTxWrites(db);
+        if (mode == RowCountMode.Trigger) {
+            installTriggers(db, tablename);
+        }
+    }
+
+    public RowCountMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Must be called before the write (and before the TX of the write is started). Inside a TX not started by the
+     * caller, the effect of the write is unknown until that TX ends, so the count is marked stale instead.
+     * 
+     * @return true if the write must be completed by {@link #endWrite(long)}
+     */
+    public synchronized boolean beginWrite() {
+        if (mode != RowCountMode.InMemory) {
+            return false;
+        }
+        if (foreignTxWrites.onWrite()) {
+            invalidateInternal();
+            return false;
+        }
+        removeEndedForeignTxWrites();
+        writersInProgress++;
+        return true;
+    }
+
+    /**
+     * Completes a write started by {@link #beginWrite()} after its TX ended.
+     * 
+     * @param delta
+     *            rows added (negative if deleted), or {@link #UNKNOWN_DELTA}
+     */
+    public synchronized void endWrite(long delta) {
+        writersInProgress--;
+        generation++;
+        if (delta == UNKNOWN_DELTA) {
+            valid = false;
+        } else if (valid) {
+            count += delta;
+        }
+    }
+
+    /**
+     * Marks the count stale; it is counted again on the next call to {@link #getCount()}. Also forgets writes of
+     * foreign TXs, so call it again if such a TX is still open.
+     */
+    public synchronized void invalidate() {
+        foreignTxWrites.clear();
+        invalidateInternal();
+    }
+
+    private void invalidateInternal() {
+        generation++;
+        valid = false;
+    }
+
+    /**
+     * Called after a TX not started by the DAO (e.g. by the session) ended. Until then, counted rows are not cached if
+     * it contained writes. TXs ending without this call are detected on the next count or write of the thread.
+     */
+    public synchronized void onForeignTxEnded() {
+        removeEndedForeignTxWrites();
+    }
+
+    private void removeEndedForeignTxWrites() {
+        if (foreignTxWrites.removeEnded()) {
+            invalidateInternal();
+        }
+    }
+
+    public long getCount() {
+        if (mode == RowCountMode.Trigger) {
+            statements.beginUse();
+            try {
+                return statements.getRowCountStatement().simpleQueryForLong();
+            } finally {
+                statements.endUse();
+            }
+        }
+        long startGeneration;
+        boolean cacheable;
+        synchronized (this) {
+            removeEndedForeignTxWrites();
+            if (valid) {
+                return count;
+            }
+            startGeneration = generation;
+            // Own uncommitted writes would be counted, too; so would pending ones of a foreign TX (write-ahead logging)
+            cacheable = writersInProgress == 0 && !foreignTxWrites.isPending() && !db.inTransaction();
+        }
+        long counted = DatabaseUtils.queryNumEntries(db, '\'' + tablename + '\'');
+        if (cacheable) {
+            synchronized (this) {
+                if (writersInProgress == 0 && generation == startGeneration) {
+                    count = counted;
+                    valid = true;
+                }
+            }
+        }
+        return counted;
+    }
+
+    /**
+     * Must be called after writes not completed by {@link #endWrite(long)} ({@link #beginWrite()} returned false). For
+     * {@link RowCountMode#Trigger}, the counter row is recounted after writes of unknown effect: rows deleted by INSERT
+     * OR REPLACE do not fire the delete trigger unless recursive triggers are enabled.
+     * 
+     * @param delta
+     *            rows added (negative if deleted), or {@link #UNKNOWN_DELTA}
+     */
+    public void endUncountedWrite(long delta) {
+        if (mode == RowCountMode.Trigger && delta == UNKNOWN_DELTA) {
+            recountTriggerRow(db, tablename);
+        }
+    }
+
+    /**
+     * Creates the counter table and the triggers for the given table if missing. The count is initialized (or corrected
+     * after writes bypassing the DAOs) by a single COUNT(*) scan.
+     */
+    private static void installTriggers(SQLiteDatabase db, String tablename) {
+        String quotedTable = '"' + tablename + '"';
+        String whereTable = getWhereTable(tablename);
+        db.beginTransaction();
+        try {
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + COUNTER_TABLENAME
+                    + " (TABLENAME TEXT PRIMARY KEY NOT NULL, ROW_COUNT INTEGER NOT NULL)");
+            long existing = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE type='trigger'"
+                    + " AND name IN (?,?)", new String[] { tablename + "_ROW_COUNT_INSERT",
+                    tablename + "_ROW_COUNT_DELETE" });
+            if (existing != 2) {
+                dropTriggers(db, tablename);
+                db.execSQL("CREATE TRIGGER " + getInsertTrigger(tablename) + " AFTER INSERT ON " + quotedTable
+                        + " BEGIN UPDATE " + COUNTER_TABLENAME + " SET ROW_COUNT=ROW_COUNT+1" + whereTable + "; END");
+                db.execSQL("CREATE TRIGGER " + getDeleteTrigger(tablename) + " AFTER DELETE ON " + quotedTable
+                        + " BEGIN UPDATE " + COUNTER_TABLENAME + " SET ROW_COUNT=ROW_COUNT-1" + whereTable + "; END");
+            }
+            db.execSQL("INSERT OR REPLACE INTO " + COUNTER_TABLENAME + " (TABLENAME, ROW_COUNT) VALUES ("
+                    + DatabaseUtils.sqlEscapeString(tablename) + ", (SELECT COUNT(*) FROM " + quotedTable + "))");
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Drops the triggers and the counter row of {@link RowCountMode#Trigger} for the given table if present, so writes
+     * do not maintain a count nobody reads anymore.
+     */
+    public static void uninstallTriggers(SQLiteDatabase db, String tablename) {
+        db.beginTransaction();
+        try {
+            dropTriggers(db, tablename);
+            long counterTables = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE type='table'"
+                    + " AND name=?", new String[] { COUNTER_TABLENAME });
+            if (counterTables != 0) {
+                db.execSQL("DELETE FROM " + COUNTER_TABLENAME + getWhereTable(tablename));
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void recountTriggerRow(SQLiteDatabase db, String tablename) {
+        db.execSQL("UPDATE " + COUNTER_TABLENAME + " SET ROW_COUNT=(SELECT COUNT(*) FROM \"" + tablename + "\")"
+                + getWhereTable(tablename));
+    }
+
+    private static void dropTriggers(SQLiteDatabase db, String tablename) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + getInsertTrigger(tablename));
+        db.execSQL("DROP TRIGGER IF EXISTS " + getDeleteTrigger(tablename));
+    }
+
+    private static String getInsertTrigger(String tablename) {
+        return '"' + tablename + "_ROW_COUNT_INSERT\"";
+    }
+
+    private static String getDeleteTrigger(String tablename) {
+        return '"' + tablename + "_ROW_COUNT_DELETE\"";
+    }
+
+    private static String getWhereTable(String tablename) {
+        return " WHERE TABLENAME=" + DatabaseUtils.sqlEscapeString(tablename);
+    }
+
+}
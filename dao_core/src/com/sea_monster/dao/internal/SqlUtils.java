@@ -17,6 +17,9 @@ package com.sea_monster.dao.internal;
 
 import android.text.TextUtils;
 
+import java.util.Arrays;
+import java.util.List;
+
 import com.sea_monster.dao.DaoException;
 
 /**
@@ -115,6 +118,100 @@ public class SqlUtils {
         return builder.toString();
     }
 
+    /**
+     * Creates a multi-row INSERT binding the given columns for each of the rows. Multi-row VALUES requires SQLite
+     * 3.7.11 or later.
+     */
+    public static String createSqlInsert(String insertInto, String tablename, String[] columns, int rowCount) {
+        StringBuilder builder = new StringBuilder(insertInto);
+        builder.append(tablename).append(" (");
+        appendColumns(builder, columns);
+        builder.append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append('(');
+            appendPlaceholders(builder, columns.length);
+            builder.append(')');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates an INSERT with an upsert clause (requires SQLite 3.24.0 or later): if the row conflicts on the given
+     * columns, the update columns of the existing row are set to the values of the new row.
+     */
+    public static String createSqlUpsert(String tablename, String[] columns, String[] conflictColumns,
+            String[] updateColumns) {
+        StringBuilder builder = new StringBuilder(createSqlInsert("INSERT INTO ", tablename, columns));
+        builder.append(" ON CONFLICT(");
+        appendQuotedIdentifiers(builder, conflictColumns, ",");
+        builder.append(") DO ");
+        if (updateColumns.length == 0) {
+            builder.append("NOTHING");
+        } else {
+            builder.append("UPDATE SET ");
+            for (int i = 0; i < updateColumns.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append('"').append(updateColumns[i]).append("\"=excluded.\"").append(updateColumns[i]);
+                builder.append('"');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates an UPDATE using numbered parameters, so all columns can be bound like for an INSERT: update columns
+     * refer to their (1 based) position in columns, the WHERE columns follow at columns.length + 1.
+     */
+    public static String createSqlUpdateNumbered(String tablename, String[] columns, String[] updateColumns,
+            String[] whereColumns) {
+        List<String> columnList = Arrays.asList(columns);
+        StringBuilder builder = new StringBuilder("UPDATE ");
+        builder.append(tablename).append(" SET ");
+        if (updateColumns.length == 0) {
+            // Nothing to update besides the WHERE columns; still reports the row as changed
+            builder.append('"').append(whereColumns[0]).append("\"=?").append(columns.length + 1);
+        }
+        for (int i = 0; i < updateColumns.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            int position = columnList.indexOf(updateColumns[i]) + 1;
+            builder.append('"').append(updateColumns[i]).append("\"=?").append(position);
+        }
+        builder.append(" WHERE ");
+        for (int i = 0; i < whereColumns.length; i++) {
+            if (i > 0) {
+                builder.append(" AND ");
+            }
+            builder.append('"').append(whereColumns[i]).append("\"=?").append(columns.length + 1 + i);
+        }
+        return builder.toString();
+    }
+
+    /** Creates a SELECT of the given column for rows matching all WHERE columns. */
+    public static String createSqlSelectWhere(String tablename, String column, String[] whereColumns) {
+        StringBuilder builder = new StringBuilder("SELECT \"");
+        builder.append(column).append("\" FROM ").append(tablename).append(" WHERE ");
+        appendQuotedIdentifiers(builder, whereColumns, "=? AND ");
+        builder.append("=?");
+        return builder.toString();
+    }
+
+    private static StringBuilder appendQuotedIdentifiers(StringBuilder builder, String[] identifiers, String separator) {
+        for (int i = 0; i < identifiers.length; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append('"').append(identifiers[i]).append('"');
+        }
+        return builder;
+    }
+
     /**
      * Creates an select for given columns with a trailing space
      */
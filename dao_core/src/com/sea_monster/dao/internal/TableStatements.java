@@ -15,25 +15,70 @@
  */
 package com.sea_monster.dao.internal;
 
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sea_monster.dao.DbUtils;
+import com.sea_monster.dao.RowCountMode;
 
 /** Helper class to create SQL statements for specific tables (used by greenDAO internally). */
 public class TableStatements {
+    /** Default SQLITE_MAX_VARIABLE_NUMBER; the bound parameters of a single statement may not exceed it. */
+    public static final int MAX_VARIABLE_NUMBER = 999;
+
+    /** Multi-row VALUES was introduced with SQLite 3.7.11. */
+    private static final int SQLITE_VERSION_MULTI_ROW_INSERT = 3007011;
+
+    /** Upserts (INSERT ... ON CONFLICT DO UPDATE) were introduced with SQLite 3.24.0. */
+    private static final int SQLITE_VERSION_UPSERT = 3024000;
+
+    /** Row counts of the cached multi-row insert statements, largest first. */
+    private static final int[] INSERT_BATCH_SIZES = { 64, 16, 4 };
+
+    /** Key counts of the cached "WHERE pk IN (...)" selects, smallest first; smaller key sets are padded. */
+    private static final int[] KEYS_CHUNK_SIZES = { 8, 32, 128, 512 };
+
+    /** Maximum number of cached partial update statements per table and thread. */
+    private static final int PARTIAL_UPDATE_CACHE_SIZE = 16;
+
+    /** Maximum number of threads holding compiled statements; statements of the least recently used are released. */
+    private static final int MAX_THREADS = 4;
+
+    /** Statements of threads not using them for this time are released (see {@link #evictIdle(long)}). */
+    private static final long IDLE_MILLIS = 60 * 1000;
+
     private final SQLiteDatabase db;
     private final String tablename;
     private final String[] allColumns;
     private final String[] pkColumns;
 
-    private SQLiteStatement insertStatement;
-    private SQLiteStatement insertOrReplaceStatement;
-    private SQLiteStatement updateStatement;
-    private SQLiteStatement deleteStatement;
+    /**
+     * Compiled statements are confined to the thread using them, so binding and executing needs no locking. Holders not
+     * in use are bounded to {@link #MAX_THREADS}, plus holders of unscoped uses not ended by their owner yet.
+     */
+    private final ThreadLocal<ThreadStatements> threadStatements = new ThreadLocal<ThreadStatements>();
+    private final List<ThreadStatements> registeredStatements = new ArrayList<ThreadStatements>();
+    /** Uptime after which {@link #endUse()} checks for idle holders again. */
+    private volatile long nextIdleCheck;
+
+    private volatile int[] insertBatchSizes;
+
+    private volatile int sqliteVersion;
 
     private volatile String selectAll;
     private volatile String selectByKey;
     private volatile String selectByRowId;
     private volatile String selectKeys;
+    private final String[] selectByKeys = new String[KEYS_CHUNK_SIZES.length];
 
     public TableStatements(SQLiteDatabase db, String tablename, String[] allColumns, String[] pkColumns) {
         this.db = db;
@@ -42,36 +87,420 @@ public class TableStatements {
         this.pkColumns = pkColumns;
     }
 
+    /**
+     * Should be called before the calling thread obtains statements of this table, and be followed by
+     * {@link #endUse()} once it is done with them (nestable). Statements of threads not using them may be closed by
+     * other threads to keep the number of open statements bounded, so statements must not be kept across uses.
+     * 
+     * Statements obtained outside of a use are only closed by the owning thread once it comes back outside of a TX, so
+     * they must be used inside the TX they were obtained in, or right away if there is none.
+     */
+    public void beginUse() {
+        acquire(false);
+    }
+
+    /** Completes {@link #beginUse()}; statements obtained since then must not be used anymore. */
+    public void endUse() {
+        ThreadStatements holder = threadStatements.get();
+        if (holder == null) {
+            throw new IllegalStateException("Statements are not in use");
+        }
+        long now = SystemClock.uptimeMillis();
+        boolean close;
+        synchronized (holder) {
+            if (holder.useCount == 0) {
+                throw new IllegalStateException("Statements are not in use");
+            }
+            holder.useCount--;
+            holder.lastUsed = now;
+            close = isClosable(holder) && holder.evicted;
+            if (close) {
+                holder.closed = true;
+            }
+        }
+        if (close) {
+            unregisterAndClose(holder);
+        }
+        if (now >= nextIdleCheck) {
+            nextIdleCheck = now + IDLE_MILLIS;
+            evictIdle(now);
+        }
+    }
+
+    /** Statements of the calling thread; opens an unscoped use if called outside of {@link #beginUse()}. */
+    private ThreadStatements getThreadStatements() {
+        ThreadStatements holder = threadStatements.get();
+        if (holder != null && holder.useCount > 0) {
+            return holder;
+        }
+        return acquire(true);
+    }
+
+    private ThreadStatements acquire(boolean unscoped) {
+        long now = SystemClock.uptimeMillis();
+        ThreadStatements holder = threadStatements.get();
+        if (holder != null) {
+            boolean close = false;
+            synchronized (holder) {
+                if (holder.unscopedUse && !db.inTransaction()) {
+                    // The unscoped use ended with its TX (or right away without one)
+                    holder.unscopedUse = false;
+                    close = isClosable(holder) && holder.evicted;
+                    if (close) {
+                        holder.closed = true;
+                    }
+                }
+                if (!holder.closed) {
+                    if (unscoped) {
+                        holder.unscopedUse = true;
+                    } else {
+                        holder.useCount++;
+                    }
+                    holder.lastUsed = now;
+                    return holder;
+                }
+            }
+            if (close) {
+                unregisterAndClose(holder);
+            }
+        }
+        holder = new ThreadStatements(Thread.currentThread());
+        if (unscoped) {
+            holder.unscopedUse = true;
+        } else {
+            holder.useCount = 1;
+        }
+        holder.lastUsed = now;
+        threadStatements.set(holder);
+        register(holder, now);
+        return holder;
+    }
+
+    /**
+     * Registers the holder of the calling thread. Idle holders (see {@link #evictIdle(long)}) are evicted; so are the
+     * least recently used ones if there are more than {@link #MAX_THREADS}.
+     */
+    private void register(ThreadStatements holder, long now) {
+        List<ThreadStatements> toClose = new ArrayList<ThreadStatements>();
+        synchronized (registeredStatements) {
+            evictIdle(now, toClose);
+            int active = 0;
+            for (ThreadStatements registered : registeredStatements) {
+                if (!registered.evicted) {
+                    active++;
+                }
+            }
+            while (active >= MAX_THREADS) {
+                ThreadStatements leastRecentlyUsed = null;
+                for (ThreadStatements registered : registeredStatements) {
+                    if (!registered.evicted
+                            && (leastRecentlyUsed == null || registered.lastUsed < leastRecentlyUsed.lastUsed)) {
+                        leastRecentlyUsed = registered;
+                    }
+                }
+                if (evict(leastRecentlyUsed)) {
+                    toClose.add(leastRecentlyUsed);
+                    registeredStatements.remove(leastRecentlyUsed);
+                }
+                active--;
+            }
+            registeredStatements.add(holder);
+        }
+        for (ThreadStatements evicted : toClose) {
+            evicted.close();
+        }
+    }
+
+    /**
+     * Evicts holders of terminated threads and holders not used for {@link #IDLE_MILLIS}. Checked when a thread
+     * registers, and by {@link #endUse()} at most once per idle period.
+     */
+    private void evictIdle(long now) {
+        List<ThreadStatements> toClose = new ArrayList<ThreadStatements>();
+        synchronized (registeredStatements) {
+            evictIdle(now, toClose);
+        }
+        for (ThreadStatements evicted : toClose) {
+            evicted.close();
+        }
+    }
+
+    /** Must be called while holding the lock of registeredStatements; the caller closes the returned holders. */
+    private void evictIdle(long now, List<ThreadStatements> toClose) {
+        for (Iterator<ThreadStatements> iterator = registeredStatements.iterator(); iterator.hasNext();) {
+            ThreadStatements registered = iterator.next();
+            if (!registered.thread.isAlive() || now - registered.lastUsed > IDLE_MILLIS) {
+                if (evict(registered)) {
+                    toClose.add(registered);
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Holders in use are closed by their owner in {@link #endUse()}, or once it comes back outside of a TX after an
+     * unscoped use.
+     * 
+     * @return true if the holder is not in use and was marked closed, so the caller must close it.
+     */
+    private static boolean evict(ThreadStatements holder) {
+        synchronized (holder) {
+            holder.evicted = true;
+            if (isClosable(holder)) {
+                holder.closed = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /** Must be called while holding the lock of the holder. */
+    private static boolean isClosable(ThreadStatements holder) {
+        return holder.useCount == 0 && !holder.unscopedUse && !holder.closed;
+    }
+
+    private void unregisterAndClose(ThreadStatements holder) {
+        synchronized (registeredStatements) {
+            registeredStatements.remove(holder);
+        }
+        holder.close();
+    }
+
+    /**
+     * Closes the statements compiled for the calling thread, e.g. before a worker thread finishes. Must not be called
+     * while the thread uses statements of this table; statements are compiled again on the next use.
+     */
+    public void closeThreadStatements() {
+        ThreadStatements holder = threadStatements.get();
+        if (holder != null) {
+            threadStatements.set(null);
+            boolean close;
+            synchronized (holder) {
+                if (holder.useCount != 0) {
+                    throw new IllegalStateException("Statements are in use");
+                }
+                close = !holder.closed;
+                holder.closed = true;
+            }
+            if (close) {
+                unregisterAndClose(holder);
+            }
+        }
+    }
+
+    /** Number of threads currently holding compiled statements of this table. */
+    public int getThreadStatementsCount() {
+        synchronized (registeredStatements) {
+            return registeredStatements.size();
+        }
+    }
+
     public SQLiteStatement getInsertStatement() {
-        if (insertStatement == null) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.insertStatement == null) {
             String sql = SqlUtils.createSqlInsert("INSERT INTO ", tablename, allColumns);
-            insertStatement = db.compileStatement(sql);
+            holder.insertStatement = db.compileStatement(sql);
         }
-        return insertStatement;
+        return holder.insertStatement;
     }
 
     public SQLiteStatement getInsertOrReplaceStatement() {
-        if (insertOrReplaceStatement == null) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.insertOrReplaceStatement == null) {
             String sql = SqlUtils.createSqlInsert("INSERT OR REPLACE INTO ", tablename, allColumns);
-            insertOrReplaceStatement = db.compileStatement(sql);
+            holder.insertOrReplaceStatement = db.compileStatement(sql);
+        }
+        return holder.insertOrReplaceStatement;
+    }
+
+    /**
+     * Row counts usable for multi-row inserts, largest first. The sizes are limited so the bound parameters stay below
+     * {@link #MAX_VARIABLE_NUMBER}. Empty if the SQLite version does not support multi-row inserts.
+     */
+    public int[] getInsertBatchSizes() {
+        if (insertBatchSizes == null) {
+            int maxRows = MAX_VARIABLE_NUMBER / allColumns.length;
+            int[] sizes;
+            if (getSqliteVersion() < SQLITE_VERSION_MULTI_ROW_INSERT || maxRows < 2) {
+                sizes = new int[0];
+            } else {
+                int count = 0;
+                sizes = new int[INSERT_BATCH_SIZES.length];
+                for (int size : INSERT_BATCH_SIZES) {
+                    int cappedSize = Math.min(size, maxRows);
+                    if (count == 0 || cappedSize < sizes[count - 1]) {
+                        sizes[count++] = cappedSize;
+                    }
+                }
+                int[] usedSizes = new int[count];
+                System.arraycopy(sizes, 0, usedSizes, 0, count);
+                sizes = usedSizes;
+            }
+            insertBatchSizes = sizes;
         }
-        return insertOrReplaceStatement;
+        return insertBatchSizes;
+    }
+
+    /**
+     * Multi-row insert statement for the batch size at the given index of {@link #getInsertBatchSizes()}.
+     * 
+     * @param orReplace
+     *            true to get an INSERT OR REPLACE statement
+     */
+    public SQLiteStatement getInsertBatchStatement(int sizeIndex, boolean orReplace) {
+        int[] sizes = getInsertBatchSizes();
+        ThreadStatements holder = getThreadStatements();
+        SQLiteStatement[] batchStatements = orReplace ? holder.insertOrReplaceBatchStatements
+                : holder.insertBatchStatements;
+        if (batchStatements == null) {
+            batchStatements = new SQLiteStatement[sizes.length];
+            if (orReplace) {
+                holder.insertOrReplaceBatchStatements = batchStatements;
+            } else {
+                holder.insertBatchStatements = batchStatements;
+            }
+        }
+        SQLiteStatement stmt = batchStatements[sizeIndex];
+        if (stmt == null) {
+            String insertInto = orReplace ? "INSERT OR REPLACE INTO " : "INSERT INTO ";
+            String sql = SqlUtils.createSqlInsert(insertInto, tablename, allColumns, sizes[sizeIndex]);
+            stmt = db.compileStatement(sql);
+            batchStatements[sizeIndex] = stmt;
+        }
+        return stmt;
     }
 
     public SQLiteStatement getDeleteStatement() {
-        if (deleteStatement == null) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.deleteStatement == null) {
             String sql = SqlUtils.createSqlDelete(tablename, pkColumns);
-            deleteStatement = db.compileStatement(sql);
+            holder.deleteStatement = db.compileStatement(sql);
+        }
+        return holder.deleteStatement;
+    }
+
+    /**
+     * DELETE "WHERE pk IN (?,?,...)" for the given chunk size (see {@link #getKeysChunkSize(int)}). Only for entities
+     * with a single PK.
+     */
+    public SQLiteStatement getDeleteByKeysStatement(int chunkSize) {
+        int index = getKeysChunkIndex(chunkSize);
+        ThreadStatements holder = getThreadStatements();
+        SQLiteStatement stmt = holder.deleteByKeysStatements[index];
+        if (stmt == null) {
+            StringBuilder builder = new StringBuilder("DELETE FROM ");
+            builder.append(tablename).append(" WHERE ");
+            SqlUtils.appendColumn(builder, tablename, pkColumns[0]).append(" IN (");
+            SqlUtils.appendPlaceholders(builder, chunkSize).append(')');
+            stmt = db.compileStatement(builder.toString());
+            holder.deleteByKeysStatements[index] = stmt;
         }
-        return deleteStatement;
+        return stmt;
     }
 
     public SQLiteStatement getUpdateStatement() {
-        if (updateStatement == null) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.updateStatement == null) {
             String sql = SqlUtils.createSqlUpdate(tablename, allColumns, pkColumns);
-            updateStatement = db.compileStatement(sql);
+            holder.updateStatement = db.compileStatement(sql);
         }
-        return updateStatement;
+        return holder.updateStatement;
+    }
+
+    /**
+     * UPDATE statement setting only the columns of the given mask (bit per column index), followed by the PK columns
+     * for the WHERE clause. Statements are cached per thread for the most recently used masks; evicted statements are
+     * closed, so the statement must be used before getting another one for a different mask.
+     */
+    public SQLiteStatement getUpdateStatement(long columnMask) {
+        Long key = columnMask;
+        Map<Long, SQLiteStatement> partialUpdateStatements = getThreadStatements().partialUpdateStatements;
+        SQLiteStatement stmt = partialUpdateStatements.get(key);
+        if (stmt == null) {
+            String[] updateColumns = new String[Long.bitCount(columnMask)];
+            int count = 0;
+            for (int i = 0; i < allColumns.length; i++) {
+                if ((columnMask & (1L << i)) != 0) {
+                    updateColumns[count++] = allColumns[i];
+                }
+            }
+            String sql = SqlUtils.createSqlUpdate(tablename, updateColumns, pkColumns);
+            stmt = db.compileStatement(sql);
+            partialUpdateStatements.put(key, stmt);
+        }
+        return stmt;
+    }
+
+    /** Selects the row count maintained by the triggers of {@link RowCountMode#Trigger}. */
+    public SQLiteStatement getRowCountStatement() {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.rowCountStatement == null) {
+            String sql = "SELECT ROW_COUNT FROM " + RowCounter.COUNTER_TABLENAME + " WHERE TABLENAME="
+                    + DatabaseUtils.sqlEscapeString(tablename);
+            holder.rowCountStatement = db.compileStatement(sql);
+        }
+        return holder.rowCountStatement;
+    }
+
+    /** True if the SQLite version supports native upserts (see {@link #getUpsertStatement(String[])}). */
+    public boolean isUpsertSupported() {
+        return getSqliteVersion() >= SQLITE_VERSION_UPSERT;
+    }
+
+    /**
+     * INSERT binding all columns, which updates the existing row on a conflict for the given columns (not touching PK
+     * and conflict columns). Requires {@link #isUpsertSupported()}. The conflict columns are defined by the DAO and
+     * must be the same for all upsert statements of the table.
+     */
+    public SQLiteStatement getUpsertStatement(String[] conflictColumns) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.upsertStatement == null) {
+            String[] updateColumns = getUpsertUpdateColumns(conflictColumns);
+            String sql = SqlUtils.createSqlUpsert(tablename, allColumns, conflictColumns, updateColumns);
+            holder.upsertStatement = db.compileStatement(sql);
+        }
+        return holder.upsertStatement;
+    }
+
+    /**
+     * UPDATE for upserts without native support: all columns are bound like for an INSERT, followed by the values of
+     * the conflict columns for the WHERE clause.
+     */
+    public SQLiteStatement getUpsertUpdateStatement(String[] conflictColumns) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.upsertUpdateStatement == null) {
+            String[] updateColumns = getUpsertUpdateColumns(conflictColumns);
+            String sql = SqlUtils.createSqlUpdateNumbered(tablename, allColumns, updateColumns, conflictColumns);
+            holder.upsertUpdateStatement = db.compileStatement(sql);
+        }
+        return holder.upsertUpdateStatement;
+    }
+
+    /** Selects the (single) PK of the row matching the values of the given conflict columns. */
+    public SQLiteStatement getSelectKeyByConflictStatement(String[] conflictColumns) {
+        ThreadStatements holder = getThreadStatements();
+        if (holder.selectKeyByConflictStatement == null) {
+            String sql = SqlUtils.createSqlSelectWhere(tablename, pkColumns[0], conflictColumns);
+            holder.selectKeyByConflictStatement = db.compileStatement(sql);
+        }
+        return holder.selectKeyByConflictStatement;
+    }
+
+    /** All columns but PK and conflict columns. */
+    private String[] getUpsertUpdateColumns(String[] conflictColumns) {
+        List<String> columns = new ArrayList<String>(Arrays.asList(allColumns));
+        columns.removeAll(Arrays.asList(pkColumns));
+        columns.removeAll(Arrays.asList(conflictColumns));
+        return columns.toArray(new String[columns.size()]);
+    }
+
+    /** Version of the SQLite library, encoded like SQLITE_VERSION_NUMBER (see {@link DbUtils#querySqliteVersion}). */
+    public int getSqliteVersion() {
+        if (sqliteVersion == 0) {
+            sqliteVersion = DbUtils.querySqliteVersion(db);
+        }
+        return sqliteVersion;
     }
 
     /** ends with an space to simplify appending to this string. */
@@ -101,6 +530,45 @@ public class TableStatements {
         return selectByKey;
     }
 
+    /**
+     * Number of keys to use for the next chunk of a "WHERE pk IN (...)" statement if there are keyCount keys left. If
+     * the result is bigger than keyCount, the remaining parameters must be padded (e.g. by repeating a key).
+     */
+    public static int getKeysChunkSize(int keyCount) {
+        for (int size : KEYS_CHUNK_SIZES) {
+            if (keyCount <= size) {
+                return size;
+            }
+        }
+        return KEYS_CHUNK_SIZES[KEYS_CHUNK_SIZES.length - 1];
+    }
+
+    private static int getKeysChunkIndex(int chunkSize) {
+        int index = Arrays.binarySearch(KEYS_CHUNK_SIZES, chunkSize);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not a keys chunk size: " + chunkSize);
+        }
+        return index;
+    }
+
+    /**
+     * Selects all columns "WHERE pk IN (?,?,...)" for the given chunk size (see {@link #getKeysChunkSize(int)}). Only
+     * for entities with a single PK.
+     */
+    public String getSelectByKeys(int chunkSize) {
+        int index = getKeysChunkIndex(chunkSize);
+        String sql = selectByKeys[index];
+        if (sql == null) {
+            StringBuilder builder = new StringBuilder(getSelectAll());
+            builder.append("WHERE ");
+            SqlUtils.appendColumn(builder, tablename, pkColumns[0]).append(" IN (");
+            SqlUtils.appendPlaceholders(builder, chunkSize).append(')');
+            sql = builder.toString();
+            selectByKeys[index] = sql;
+        }
+        return sql;
+    }
+
     public String getSelectByRowId() {
         if (selectByRowId == null) {
             selectByRowId = getSelectAll() + "WHERE ROWID=?";
@@ -108,4 +576,78 @@ public class TableStatements {
         return selectByRowId;
     }
 
+    /** Compiled statements owned by a single thread. */
+    private static final class ThreadStatements {
+        final Thread thread;
+        /** Written by the owning thread, read by the pool while holding its lock. */
+        volatile long lastUsed;
+        /** Nesting depth of {@link TableStatements#beginUse()}; guarded by this. */
+        int useCount;
+        /** Statements were obtained outside of {@link TableStatements#beginUse()}; guarded by this. */
+        boolean unscopedUse;
+        /** Set by the pool; the holder is closed once it is not in use anymore. Guarded by this. */
+        boolean evicted;
+        /** Set before the statements are closed; the owning thread gets a new holder. Guarded by this. */
+        boolean closed;
+
+        SQLiteStatement insertStatement;
+        SQLiteStatement insertOrReplaceStatement;
+        SQLiteStatement updateStatement;
+        SQLiteStatement deleteStatement;
+        SQLiteStatement upsertStatement;
+        SQLiteStatement upsertUpdateStatement;
+        SQLiteStatement selectKeyByConflictStatement;
+        SQLiteStatement rowCountStatement;
+        SQLiteStatement[] insertBatchStatements;
+        SQLiteStatement[] insertOrReplaceBatchStatements;
+        final SQLiteStatement[] deleteByKeysStatements = new SQLiteStatement[KEYS_CHUNK_SIZES.length];
+        final Map<Long, SQLiteStatement> partialUpdateStatements;
+
+        ThreadStatements(Thread thread) {
+            this.thread = thread;
+            partialUpdateStatements = new LinkedHashMap<Long, SQLiteStatement>(PARTIAL_UPDATE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, SQLiteStatement> eldest) {
+                    if (size() > PARTIAL_UPDATE_CACHE_SIZE) {
+                        eldest.getValue().close();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        void close() {
+            close(insertStatement);
+            close(insertOrReplaceStatement);
+            close(updateStatement);
+            close(deleteStatement);
+            close(upsertStatement);
+            close(upsertUpdateStatement);
+            close(selectKeyByConflictStatement);
+            close(rowCountStatement);
+            close(insertBatchStatements);
+            close(insertOrReplaceBatchStatements);
+            close(deleteByKeysStatements);
+            for (SQLiteStatement stmt : partialUpdateStatements.values()) {
+                stmt.close();
+            }
+            partialUpdateStatements.clear();
+        }
+
+        private static void close(SQLiteStatement[] statements) {
+            if (statements != null) {
+                for (SQLiteStatement stmt : statements) {
+                    close(stmt);
+                }
+            }
+        }
+
+        private static void close(SQLiteStatement stmt) {
+            if (stmt != null) {
+                stmt.close();
+            }
+        }
+    }
+
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.internal;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Internal class used by greenDAO. Version of a table's content, incremented before and after each write by a DAO (and
+ * after transactions not started by the DAO ended). Shared by all DAOs of the table, so results cached for a version
+ * (see {@link com.sea_monster.dao.query.QueryCache}) are outdated by writes of any session.
+ *
+ * A result queried between the increments may or may not contain the write, so it must be stored with the version
+ * read before querying; it is outdated by the second increment at the latest.
+ */
+public final class TableVersion {
+    private final SQLiteDatabase db;
+
+    private long version;
+    /** Written inside TXs not started by the DAO; their commits will not increment the version by themselves. */
+    private final ForeignTxWrites foreignTxWrites;
+
+    public TableVersion(SQLiteDatabase db) {
+        this.db = db;
+        foreignTxWrites = new ForeignTxWrites(db);
+    }
+
+    public synchronized long get() {
+        return version;
+    }
+
+    /**
+     * True if results read now can be cached: the calling thread is not inside a TX (which may be rolled back), and no
+     * write is pending in a TX not started by the DAO.
+     */
+    public synchronized boolean isCacheable() {
+        removeEndedForeignTxWrites();
+        return !foreignTxWrites.isPending() && !db.inTransaction();
+    }
+
+    /** Must be called before the write and its TX. */
+    public synchronized void beginWrite() {
+        version++;
+        if (!foreignTxWrites.onWrite()) {
+            removeEndedForeignTxWrites();
+        }
+    }
+
+    /** Must be called after the write (and its TX) ended, whether it succeeded or not. */
+    public synchronized void endWrite() {
+        version++;
+    }
+
+    /**
+     * Called after a TX not started by the DAO (e.g. by the session) ended. TXs ending without this call are detected
+     * on the next check or write of the thread.
+     */
+    public synchronized void onForeignTxEnded() {
+        removeEndedForeignTxWrites();
+    }
+
+    /** Outdates all results and forgets writes of foreign TXs, e.g. after the table was changed bypassing the DAOs. */
+    public synchronized void invalidate() {
+        foreignTxWrites.clear();
+        version++;
+    }
+
+    private void removeEndedForeignTxWrites() {
+        if (foreignTxWrites.removeEnded()) {
+            version++;
+        }
+    }
+
+}
@@ -15,9 +15,15 @@
  */
 package com.sea_monster.dao.query;
 
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.DbUtils;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
+import com.sea_monster.dao.internal.TableVersion;
 
 /**
  * A repeatable query returning entities.
@@ -27,29 +33,17 @@ import com.sea_monster.dao.IQueryDaoAccess;
  * @param <T>
  *            The enitity class the query will return results for.
  */
-// TODO support long, double, blob types directly
 abstract class AbstractQuery<T> {
     protected final AbstractDao<T, ?> dao;
     protected final IQueryDaoAccess<T> daoAccess;
     protected final String sql;
-    protected final String[] parameters;
+    protected final QueryParameters parameters;
     protected final Thread ownerThread;
+    /** Compiled on first use by the owner thread; closed by the query data once the query was garbage collected. */
+    final CompiledStatement compiledStatement = new CompiledStatement();
 
-    protected static String[] toStringArray(Object[] values) {
-        int length = values.length;
-        String[] strings = new String[length];
-        for (int i = 0; i < length; i++) {
-            Object object = values[i];
-            if (object != null) {
-                strings[i] = object.toString();
-            } else {
-                strings[i] = null;
-            }
-        }
-        return strings;
-    }
-
-    protected AbstractQuery(AbstractDao<T, ?> dao, IQueryDaoAccess<T> daoAccess,  String sql, String[] parameters) {
+    protected AbstractQuery(AbstractDao<T, ?> dao, IQueryDaoAccess<T> daoAccess, String sql,
+            QueryParameters parameters) {
         this.dao = dao;
         this.daoAccess = daoAccess;
         this.sql = sql;
@@ -57,20 +51,60 @@ abstract class AbstractQuery<T> {
         ownerThread = Thread.currentThread();
     }
 
-    // public void compile() {
-    // // TODO implement compile
-    // }
-
     /**
      * Sets the parameter (0 based) using the position in which it was added during building the query.
      */
     public void setParameter(int index, Object parameter) {
         checkThread();
-        if (parameter != null) {
-            parameters[index] = parameter.toString();
-        } else {
-            parameters[index] = null;
+        parameters.set(index, parameter);
+    }
+
+    /** Executes the query returning a cursor; parameters are bound using their types (not converted to Strings). */
+    protected Cursor rawQuery() {
+        return parameters.rawQuery(dao.getDatabase(), sql);
+    }
+
+    /**
+     * Executes the query as a compiled statement with the current parameters bound, returning the long of the first
+     * column of the first row. The statement is compiled once per query instance (i.e. per thread).
+     */
+    protected long simpleQueryForLong() {
+        return getBoundStatement().simpleQueryForLong();
+    }
+
+    /**
+     * Executes the UPDATE or DELETE query as a compiled statement with the current parameters bound.
+     * 
+     * @return number of rows affected
+     */
+    protected int executeUpdateDelete() {
+        return DbUtils.executeUpdateDelete(dao.getDatabase(), getBoundStatement());
+    }
+
+    private SQLiteStatement getBoundStatement() {
+        SQLiteStatement statement = compiledStatement.statement;
+        if (statement == null) {
+            statement = dao.getDatabase().compileStatement(sql);
+            compiledStatement.statement = statement;
         }
+        parameters.bindTo(statement);
+        return statement;
+    }
+
+    /** The session's result cache, or null if it is not enabled. */
+    protected QueryCache getQueryCache() {
+        return QueryCache.forDao(dao);
+    }
+
+    /** Caches the result of the current execution; version must be obtained before executing it. */
+    protected void putCachedResult(QueryCache queryCache, long version, Object result, int rows) {
+        TableVersion tableVersion = IQueryDaoAccess.InternalQueryDaoAccess.getTableVersion(dao);
+        queryCache.put(sql, parameters, dao.getTablename(), tableVersion, version, result, rows);
+    }
+
+    /** See {@link QueryCache#getCacheableVersion(TableVersion)}. */
+    protected long getCacheableVersion(QueryCache queryCache) {
+        return queryCache.getCacheableVersion(IQueryDaoAccess.InternalQueryDaoAccess.getTableVersion(dao));
     }
 
     protected void checkThread() {
@@ -80,4 +114,20 @@ abstract class AbstractQuery<T> {
         }
     }
 
+    /**
+     * Holds the compiled statement apart from the query, so it can be closed after the query (which is only weakly
+     * referenced by its query data) was garbage collected.
+     */
+    static final class CompiledStatement {
+        volatile SQLiteStatement statement;
+
+        void close() {
+            SQLiteStatement statementToClose = statement;
+            if (statementToClose != null) {
+                statement = null;
+                statementToClose.close();
+            }
+        }
+    }
+
 }
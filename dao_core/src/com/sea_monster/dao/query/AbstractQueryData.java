@@ -6,24 +6,28 @@ import android.util.SparseArray;
 import java.lang.ref.WeakReference;
 
 import com.sea_monster.dao.AbstractDao;
+import com.sea_monster.dao.internal.QueryParameters;
 
 abstract class AbstractQueryData<T, Q extends AbstractQuery<T>> {
     final String sql;
     final AbstractDao<T, ?> dao;
-    final String[] initialValues;
+    final QueryParameters initialValues;
     final SparseArray<WeakReference<Q>> queriesForThreads;
+    /** Compiled statements of the queries by thread; guarded by queriesForThreads. */
+    final SparseArray<AbstractQuery.CompiledStatement> statementsForThreads;
 
-    AbstractQueryData(AbstractDao<T, ?> dao, String sql, String[] initialValues) {
+    AbstractQueryData(AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
         this.dao = dao;
         this.sql = sql;
         this.initialValues = initialValues;
         queriesForThreads = new SparseArray<WeakReference<Q>>();
+        statementsForThreads = new SparseArray<AbstractQuery.CompiledStatement>();
     }
 
     /** Just an optimized version, which performs faster if the current thread is already the query's owner thread. */
     Q forCurrentThread(Q query) {
         if (Thread.currentThread() == query.ownerThread) {
-            System.arraycopy(initialValues, 0, query.parameters, 0, initialValues.length);
+            query.parameters.copyFrom(initialValues);
             return query;
         } else {
             return forCurrentThread();
@@ -39,8 +43,9 @@ abstract class AbstractQueryData<T, Q extends AbstractQuery<T>> {
                 gc();
                 query = createQuery();
                 queriesForThreads.put(threadId, new WeakReference<Q>(query));
+                statementsForThreads.put(threadId, query.compiledStatement);
             } else {
-                System.arraycopy(initialValues, 0, query.parameters, 0, initialValues.length);
+                query.parameters.copyFrom(initialValues);
             }
             return query;
         }
@@ -52,7 +57,14 @@ abstract class AbstractQueryData<T, Q extends AbstractQuery<T>> {
         synchronized (queriesForThreads) {
             for (int i = queriesForThreads.size() - 1; i >= 0; i--) {
                 if (queriesForThreads.valueAt(i).get() == null) {
-                    queriesForThreads.remove(queriesForThreads.keyAt(i));
+                    int threadId = queriesForThreads.keyAt(i);
+                    queriesForThreads.remove(threadId);
+                    // The query is gone, so nobody uses its statement anymore
+                    AbstractQuery.CompiledStatement compiledStatement = statementsForThreads.get(threadId);
+                    if (compiledStatement != null) {
+                        statementsForThreads.remove(threadId);
+                        compiledStatement.close();
+                    }
                 }
             }
         }
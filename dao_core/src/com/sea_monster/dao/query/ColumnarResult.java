@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import android.database.Cursor;
+
+import java.util.BitSet;
+import java.util.Date;
+
+import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.Property;
+
+/**
+ * Result of a {@link ProjectionQuery} stored per column in arrays of the column's type: integral, boolean, and date
+ * properties in long[] (booleans as 1 or 0, dates in milliseconds), floating point properties in double[], strings in
+ * String[], and byte arrays in byte[][]. Nulls of long and double columns are read as 0 and flagged (see
+ * {@link #isNull(int, int)}).
+ * 
+ * @author Markus
+ */
+public final class ColumnarResult {
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_DOUBLE = 2;
+    static final byte TYPE_STRING = 3;
+    static final byte TYPE_BLOB = 4;
+
+    private final Property[] properties;
+    private final byte[] types;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private final int rowCount;
+
+    static byte getColumnType(Property property) {
+        Class<?> type = property.type;
+        if (type == long.class || type == Long.class || type == int.class || type == Integer.class
+                || type == short.class || type == Short.class || type == byte.class || type == Byte.class
+                || type == boolean.class || type == Boolean.class || type == Date.class) {
+            return TYPE_LONG;
+        } else if (type == double.class || type == Double.class || type == float.class || type == Float.class) {
+            return TYPE_DOUBLE;
+        } else if (type == byte[].class) {
+            return TYPE_BLOB;
+        } else {
+            return TYPE_STRING;
+        }
+    }
+
+    /** Reads all rows of the cursor, which must have a column per property in the same order. */
+    ColumnarResult(Property[] properties, byte[] types, Cursor cursor) {
+        this.properties = properties;
+        this.types = types;
+        rowCount = cursor.getCount();
+        int columnCount = types.length;
+        columns = new Object[columnCount];
+        nulls = new BitSet[columnCount];
+        for (int column = 0; column < columnCount; column++) {
+            switch (types[column]) {
+            case TYPE_LONG:
+                columns[column] = new long[rowCount];
+                nulls[column] = new BitSet(rowCount);
+                break;
+            case TYPE_DOUBLE:
+                columns[column] = new double[rowCount];
+                nulls[column] = new BitSet(rowCount);
+                break;
+            case TYPE_BLOB:
+                columns[column] = new byte[rowCount][];
+                break;
+            default:
+                columns[column] = new String[rowCount];
+            }
+        }
+        int row = 0;
+        while (row < rowCount && cursor.moveToNext()) {
+            for (int column = 0; column < columnCount; column++) {
+                switch (types[column]) {
+                case TYPE_LONG:
+                    if (cursor.isNull(column)) {
+                        nulls[column].set(row);
+                    } else {
+                        ((long[]) columns[column])[row] = cursor.getLong(column);
+                    }
+                    break;
+                case TYPE_DOUBLE:
+                    if (cursor.isNull(column)) {
+                        nulls[column].set(row);
+                    } else {
+                        ((double[]) columns[column])[row] = cursor.getDouble(column);
+                    }
+                    break;
+                case TYPE_BLOB:
+                    ((byte[][]) columns[column])[row] = cursor.getBlob(column);
+                    break;
+                default:
+                    ((String[]) columns[column])[row] = cursor.getString(column);
+                }
+            }
+            row++;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return types.length;
+    }
+
+    /** Index of the given property in the projection. */
+    public int getColumnIndex(Property property) {
+        for (int i = 0; i < properties.length; i++) {
+            if (properties[i] == property) {
+                return i;
+            }
+        }
+        throw new DaoException("Property '" + property.name + "' is not part of the projection");
+    }
+
+    /** Values of an integral, boolean, or date column; nulls are 0. */
+    public long[] getLongs(int column) {
+        return (long[]) getColumn(column, TYPE_LONG);
+    }
+
+    public long[] getLongs(Property property) {
+        return getLongs(getColumnIndex(property));
+    }
+
+    /** Values of a floating point column; nulls are 0. */
+    public double[] getDoubles(int column) {
+        return (double[]) getColumn(column, TYPE_DOUBLE);
+    }
+
+    public double[] getDoubles(Property property) {
+        return getDoubles(getColumnIndex(property));
+    }
+
+    public String[] getStrings(int column) {
+        return (String[]) getColumn(column, TYPE_STRING);
+    }
+
+    public String[] getStrings(Property property) {
+        return getStrings(getColumnIndex(property));
+    }
+
+    public byte[][] getBlobs(int column) {
+        return (byte[][]) getColumn(column, TYPE_BLOB);
+    }
+
+    public byte[][] getBlobs(Property property) {
+        return getBlobs(getColumnIndex(property));
+    }
+
+    public boolean isNull(int row, int column) {
+        if (nulls[column] != null) {
+            return nulls[column].get(row);
+        } else {
+            return ((Object[]) columns[column])[row] == null;
+        }
+    }
+
+    private Object getColumn(int column, byte type) {
+        if (types[column] != type) {
+            throw new DaoException("Column " + column + " (" + properties[column].name + ") has a different type");
+        }
+        return columns[column];
+    }
+
+}
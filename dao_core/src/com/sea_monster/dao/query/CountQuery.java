@@ -1,33 +1,31 @@
 package com.sea_monster.dao.query;
 
-import android.database.Cursor;
-
 import com.sea_monster.dao.AbstractDao;
-import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
 
 public class CountQuery<T> extends AbstractQuery<T> {
 
     private final static class QueryData<T2> extends AbstractQueryData<T2, CountQuery<T2>> {
 
-        private QueryData(AbstractDao<T2, ?> dao, String sql, String[] initialValues) {
+        private QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues) {
             super(dao, sql, initialValues);
         }
 
         @Override
         protected CountQuery<T2> createQuery() {
-            return new CountQuery<T2>(this, dao, sql, initialValues.clone());
+            return new CountQuery<T2>(this, dao, sql, initialValues.copy());
         }
     }
 
     static <T2> CountQuery<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues));
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues));
         return queryData.forCurrentThread();
     }
 
     private final QueryData<T> queryData;
 
-    private CountQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, String[] initialValues) {
+    private CountQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
         super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
     }
@@ -39,19 +37,18 @@ public class CountQuery<T> extends AbstractQuery<T> {
     /** Returns the count (number of results matching the query). Uses SELECT COUNT (*) sematics. */
     public long count() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
-        try {
-            if (!cursor.moveToNext()) {
-                throw new DaoException("No result for count");
-            } else if (!cursor.isLast()) {
-                throw new DaoException("Unexpected row count: " + cursor.getCount());
-            } else if (cursor.getColumnCount() != 1) {
-                throw new DaoException("Unexpected column count: " + cursor.getColumnCount());
-            }
-            return cursor.getLong(0);
-        } finally {
-            cursor.close();
+        QueryCache queryCache = getQueryCache();
+        if (queryCache == null) {
+            return simpleQueryForLong();
+        }
+        Long cached = (Long) queryCache.get(sql, parameters);
+        if (cached != null) {
+            return cached;
         }
+        long version = getCacheableVersion(queryCache);
+        long count = simpleQueryForLong();
+        putCachedResult(queryCache, version, count, 1);
+        return count;
     }
 
 }
@@ -7,6 +7,7 @@ import java.util.List;
 import com.sea_monster.dao.AbstractDeepDao;
 import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
 
 
 
@@ -18,7 +19,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
         private final int limitPosition;
         private final int offsetPosition;
 
-        QueryData(AbstractDeepDao<T2, ?> dao, String sql, String[] initialValues, int limitPosition, int offsetPosition) {
+        QueryData(AbstractDeepDao<T2, ?> dao, String sql, QueryParameters initialValues, int limitPosition, int offsetPosition) {
             super(dao,sql,initialValues);
             this.limitPosition = limitPosition;
             this.offsetPosition = offsetPosition;
@@ -27,7 +28,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
         @SuppressWarnings({ "unchecked", "rawtypes" })
 		@Override
         protected DeepQuery<T2> createQuery() {
-            return new DeepQuery<T2>(this, (AbstractDeepDao)dao, sql, initialValues.clone(), limitPosition, offsetPosition);
+            return new DeepQuery<T2>(this, (AbstractDeepDao)dao, sql, initialValues.copy(), limitPosition, offsetPosition);
         }
 
     }
@@ -39,7 +40,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
 
     static <T2> DeepQuery<T2> create(AbstractDeepDao<T2, ?> dao, String sql, Object[] initialValues, int limitPosition,
                                  int offsetPosition) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues), limitPosition,
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues), limitPosition,
                 offsetPosition);
         return queryData.forCurrentThread();
     }
@@ -48,7 +49,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
     private final int offsetPosition;
     private final QueryData<T> queryData;
 
-    private DeepQuery(QueryData<T> queryData, AbstractDeepDao<T, ?> dao, String sql, String[] initialValues, int limitPosition,
+    private DeepQuery(QueryData<T> queryData, AbstractDeepDao<T, ?> dao, String sql, QueryParameters initialValues, int limitPosition,
                   int offsetPosition) {
         super(dao, new IQueryDaoAccess.InternalQueryDeepDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
@@ -79,7 +80,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
         if (limitPosition == -1) {
             throw new IllegalStateException("Limit must be set with QueryBuilder before it can be used here");
         }
-        parameters[limitPosition] = Integer.toString(limit);
+        parameters.setLong(limitPosition, limit);
     }
 
     /**
@@ -91,13 +92,13 @@ public class DeepQuery<T> extends AbstractQuery<T>{
         if (offsetPosition == -1) {
             throw new IllegalStateException("Offset must be set with QueryBuilder before it can be used here");
         }
-        parameters[offsetPosition] = Integer.toString(offset);
+        parameters.setLong(offsetPosition, offset);
     }
 
     /** Executes the query and returns the result as a list containing all entities loaded into memory. */
     public List<T> list() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return daoAccess.loadAllAndCloseCursor(cursor);
     }
 
@@ -108,12 +109,12 @@ public class DeepQuery<T> extends AbstractQuery<T>{
      */
     public LazyList<T> listLazy() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return new LazyList<T>(daoAccess, cursor, true);
     }
 
     public Cursor getCursor(){
-        return dao.getDatabase().rawQuery(sql, parameters);
+        return rawQuery();
     }
 
 
@@ -123,7 +124,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
      */
     public LazyList<T> listLazyUncached() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return new LazyList<T>(daoAccess, cursor, false);
     }
 
@@ -144,7 +145,7 @@ public class DeepQuery<T> extends AbstractQuery<T>{
      */
     public T unique() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return daoAccess.loadUniqueAndCloseCursor(cursor);
     }
 
@@ -19,6 +19,9 @@ import android.database.sqlite.SQLiteDatabase;
 
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.TableChange;
+import com.sea_monster.dao.internal.QueryParameters;
+import com.sea_monster.dao.internal.RowCounter;
 
 /**
  * A repeatable query for deleting entities.<br/>
@@ -32,24 +35,24 @@ import com.sea_monster.dao.IQueryDaoAccess;
 public class DeleteQuery<T> extends AbstractQuery<T> {
     private final static class QueryData<T2> extends AbstractQueryData<T2, DeleteQuery<T2>> {
 
-        private QueryData(AbstractDao<T2, ?> dao, String sql, String[] initialValues) {
+        private QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues) {
             super(dao, sql, initialValues);
         }
 
         @Override
         protected DeleteQuery<T2> createQuery() {
-            return new DeleteQuery<T2>(this, dao, sql, initialValues.clone());
+            return new DeleteQuery<T2>(this, dao, sql, initialValues.copy());
         }
     }
 
     static <T2> DeleteQuery<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues));
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues));
         return queryData.forCurrentThread();
     }
 
     private final QueryData<T> queryData;
 
-    private DeleteQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, String[] initialValues) {
+    private DeleteQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
         super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
     }
@@ -66,19 +69,28 @@ public class DeleteQuery<T> extends AbstractQuery<T> {
     public void executeDeleteWithoutDetachingEntities() {
         checkThread();
         SQLiteDatabase db = dao.getDatabase();
-        if (db.isDbLockedByCurrentThread()) {
-            dao.getDatabase().execSQL(sql, parameters);
-        } else {
-            // Do TX to acquire a connection before locking this to avoid deadlocks
-            // Locking order as described in AbstractDao
-            db.beginTransaction();
-            try {
-                dao.getDatabase().execSQL(sql, parameters);
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
+        boolean counted = IQueryDaoAccess.InternalQueryDaoAccess.beginWrite(dao);
+        long rowDelta = RowCounter.UNKNOWN_DELTA;
+        try {
+            int deleted;
+            if (db.isDbLockedByCurrentThread()) {
+                deleted = executeUpdateDelete();
+            } else {
+                // Do TX to acquire a connection before locking this to avoid deadlocks
+                // Locking order as described in AbstractDao
+                db.beginTransaction();
+                try {
+                    deleted = executeUpdateDelete();
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
+            rowDelta = -deleted;
+        } finally {
+            IQueryDaoAccess.InternalQueryDaoAccess.endWrite(dao, counted, rowDelta);
         }
+        IQueryDaoAccess.InternalQueryDaoAccess.onTableChanged(dao, TableChange.DELETE);
     }
 
 }
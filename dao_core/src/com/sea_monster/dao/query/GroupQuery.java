@@ -7,6 +7,7 @@ import java.util.List;
 
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
 
 /**
  * Created by dragonj on 2/19/14.
@@ -16,24 +17,24 @@ public class GroupQuery<T> extends AbstractQuery<T> {
 
     private final static class QueryData<T2> extends AbstractQueryData<T2, GroupQuery<T2>> {
 
-        private QueryData(AbstractDao<T2, ?> dao, String sql, String[] initialValues) {
+        private QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues) {
             super(dao, sql, initialValues);
         }
 
         @Override
         protected GroupQuery<T2> createQuery() {
-            return new GroupQuery<T2>(this, dao, sql, initialValues.clone());
+            return new GroupQuery<T2>(this, dao, sql, initialValues.copy());
         }
     }
 
     static <T2> GroupQuery<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues));
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues));
         return queryData.forCurrentThread();
     }
 
     private final QueryData<T> queryData;
 
-    private GroupQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, String[] initialValues) {
+    private GroupQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
         super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
     }
@@ -48,7 +49,7 @@ public class GroupQuery<T> extends AbstractQuery<T> {
 
     public <K> List<K> list(QueryResultConsume<K> consume) {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         List<K> list = new ArrayList<K>();
         if (cursor.moveToFirst()) {
             do {
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import android.database.Cursor;
+
+import java.util.List;
+
+import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.Property;
+
+/**
+ * Pages through query results using the order values of the last row of the previous page ("keyset" or "seek"
+ * pagination, see {@link QueryBuilder#buildKeyset(int)}). Unlike {@link Query#setOffset(int)}, SQLite does not need to
+ * step over the rows of previous pages. Both queries (first and next pages) are built once and reused for all pages.
+ * Like queries, instances may only be used by the thread that built them.
+ * 
+ * @author Markus
+ * 
+ * @param <T>
+ *            The enitity class the query will return results for.
+ */
+public class KeysetQuery<T> {
+    /** Row values ("(a, b) > (?, ?)") were introduced with SQLite 3.15.0. */
+    private static final int SQLITE_VERSION_ROW_VALUES = 3015000;
+
+    private final Query<T> firstPageQuery;
+    private final Query<T> nextPageQuery;
+    private final int pageSize;
+    private final Property[] keyProperties;
+    private final byte[] keyTypes;
+    private final int keyParameterStart;
+    private final int[] keyColumnOfParameter;
+
+    private Object[] pageToken;
+    private boolean hasNextPage = true;
+
+    KeysetQuery(Query<T> firstPageQuery, Query<T> nextPageQuery, int pageSize, Property[] keyProperties,
+            int keyParameterStart, int[] keyColumnOfParameter) {
+        this.firstPageQuery = firstPageQuery;
+        this.nextPageQuery = nextPageQuery;
+        this.pageSize = pageSize;
+        this.keyProperties = keyProperties;
+        this.keyParameterStart = keyParameterStart;
+        this.keyColumnOfParameter = keyColumnOfParameter;
+        keyTypes = new byte[keyProperties.length];
+        for (int i = 0; i < keyProperties.length; i++) {
+            keyTypes[i] = ColumnarResult.getColumnType(keyProperties[i]);
+        }
+    }
+
+    /**
+     * Appends the predicate selecting rows after the key values. Uses a row value comparison if all keys have the same
+     * direction and SQLite supports it, otherwise the expanded form "(a > ?) OR (a = ? AND b > ?) ...".
+     * 
+     * @return the key index for each appended parameter
+     */
+    static int[] appendPredicate(StringBuilder builder, List<Property> keyProperties, List<Boolean> descending,
+            int sqliteVersion) {
+        int keyCount = keyProperties.size();
+        boolean sameDirection = true;
+        for (int i = 1; i < keyCount; i++) {
+            sameDirection &= descending.get(i).equals(descending.get(0));
+        }
+        if (keyCount == 1 || (sameDirection && sqliteVersion >= SQLITE_VERSION_ROW_VALUES)) {
+            int[] keyColumnOfParameter = new int[keyCount];
+            builder.append('(');
+            for (int i = 0; i < keyCount; i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                appendKey(builder, keyProperties.get(i));
+                keyColumnOfParameter[i] = i;
+            }
+            builder.append(descending.get(0) ? ") < (" : ") > (");
+            for (int i = 0; i < keyCount; i++) {
+                builder.append(i > 0 ? ", ?" : "?");
+            }
+            builder.append(')');
+            return keyColumnOfParameter;
+        }
+
+        int[] keyColumnOfParameter = new int[keyCount * (keyCount + 1) / 2];
+        int parameter = 0;
+        builder.append('(');
+        for (int i = 0; i < keyCount; i++) {
+            builder.append(i > 0 ? " OR (" : "(");
+            for (int j = 0; j < i; j++) {
+                appendKey(builder, keyProperties.get(j)).append("=? AND ");
+                keyColumnOfParameter[parameter++] = j;
+            }
+            appendKey(builder, keyProperties.get(i)).append(descending.get(i) ? "<?)" : ">?)");
+            keyColumnOfParameter[parameter++] = i;
+        }
+        builder.append(')');
+        return keyColumnOfParameter;
+    }
+
+    private static StringBuilder appendKey(StringBuilder builder, Property property) {
+        builder.append(property.tableName).append(".'").append(property.columnName).append('\'');
+        if (String.class.equals(property.type)) {
+            // Same collation as the order
+            builder.append(" COLLATE LOCALIZED");
+        }
+        return builder;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /** False once a page had less rows than the page size. */
+    public boolean hasNextPage() {
+        return hasNextPage;
+    }
+
+    /**
+     * Loads the page following the current page token (the first page if there is none) and moves the token to its last
+     * row.
+     */
+    public List<T> nextPage() {
+        Query<T> query;
+        if (pageToken == null) {
+            query = firstPageQuery;
+        } else {
+            query = nextPageQuery;
+            for (int i = 0; i < keyColumnOfParameter.length; i++) {
+                query.setParameter(keyParameterStart + i, pageToken[keyColumnOfParameter[i]]);
+            }
+        }
+        query.checkThread();
+        Cursor cursor = query.rawQuery();
+        Object[] lastRowToken = null;
+        try {
+            if (cursor.moveToLast()) {
+                lastRowToken = readToken(cursor);
+            }
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+        List<T> page = query.daoAccess.loadAllAndCloseCursor(cursor);
+        if (lastRowToken != null) {
+            pageToken = lastRowToken;
+        }
+        hasNextPage = page.size() == pageSize;
+        return page;
+    }
+
+    /** Reads the key values of the current row; the cursor has all columns in property order. */
+    private Object[] readToken(Cursor cursor) {
+        Object[] token = new Object[keyProperties.length];
+        for (int i = 0; i < keyProperties.length; i++) {
+            int column = keyProperties[i].ordinal;
+            if (cursor.isNull(column)) {
+                throw new DaoException("Keyset pagination does not support null values (property "
+                        + keyProperties[i].name + ")");
+            }
+            switch (keyTypes[i]) {
+            case ColumnarResult.TYPE_LONG:
+                token[i] = cursor.getLong(column);
+                break;
+            case ColumnarResult.TYPE_DOUBLE:
+                token[i] = cursor.getDouble(column);
+                break;
+            case ColumnarResult.TYPE_BLOB:
+                token[i] = cursor.getBlob(column);
+                break;
+            default:
+                token[i] = cursor.getString(column);
+            }
+        }
+        return token;
+    }
+
+    /**
+     * Key values of the last loaded row (order properties followed by the PK if it was added as tie-breaker), or null
+     * before the first page. Can be stored to continue later using {@link #setPageToken(Object[])}.
+     */
+    public Object[] getPageToken() {
+        return pageToken != null ? pageToken.clone() : null;
+    }
+
+    /** Continues after the row with the given key values (see {@link #getPageToken()}); null restarts. */
+    public void setPageToken(Object[] pageToken) {
+        if (pageToken != null && pageToken.length != keyProperties.length) {
+            throw new IllegalArgumentException("Expected " + keyProperties.length + " key values, but got "
+                    + pageToken.length);
+        }
+        this.pageToken = pageToken != null ? pageToken.clone() : null;
+        hasNextPage = true;
+    }
+
+    /** Restarts at the first page. */
+    public void reset() {
+        setPageToken(null);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sea_monster.dao.AbstractDao;
+import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.Property;
+import com.sea_monster.dao.internal.QueryParameters;
+
+/**
+ * A repeatable query selecting only some properties (see {@link QueryBuilder#select(Property...)}). Results are either
+ * mapped row by row or read into primitive column arrays; no entities are created or attached to the identity scope.
+ * 
+ * @author Markus
+ * 
+ * @param <T>
+ *            The enitity class the query selects properties of.
+ */
+public class ProjectionQuery<T> extends AbstractQuery<T> {
+    private final static class QueryData<T2> extends AbstractQueryData<T2, ProjectionQuery<T2>> {
+        private final Property[] properties;
+        private final byte[] columnTypes;
+
+        private QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues, Property[] properties) {
+            super(dao, sql, initialValues);
+            this.properties = properties;
+            columnTypes = new byte[properties.length];
+            for (int i = 0; i < properties.length; i++) {
+                columnTypes[i] = ColumnarResult.getColumnType(properties[i]);
+            }
+        }
+
+        @Override
+        protected ProjectionQuery<T2> createQuery() {
+            return new ProjectionQuery<T2>(this, dao, sql, initialValues.copy());
+        }
+    }
+
+    static <T2> ProjectionQuery<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues,
+            Property[] properties) {
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues), properties);
+        return queryData.forCurrentThread();
+    }
+
+    private final QueryData<T> queryData;
+
+    private ProjectionQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
+        super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
+        this.queryData = queryData;
+    }
+
+    public ProjectionQuery<T> forCurrentThread() {
+        return queryData.forCurrentThread(this);
+    }
+
+    /** The selected properties; cursor columns are in the same order. */
+    public Property[] getProperties() {
+        return queryData.properties.clone();
+    }
+
+    /**
+     * Executes the query and maps each row using the given mapper (e.g. into a DTO). The cursor passed to the mapper has
+     * the selected properties as columns 0 to n-1.
+     */
+    public <R> List<R> list(GroupQuery.QueryResultConsume<R> mapper) {
+        checkThread();
+        Cursor cursor = rawQuery();
+        try {
+            List<R> list = new ArrayList<R>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                list.add(mapper.getQueryResult(cursor));
+            }
+            return list;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /** Executes the query and reads all values into arrays per column. */
+    public ColumnarResult listColumns() {
+        checkThread();
+        Cursor cursor = rawQuery();
+        try {
+            return new ColumnarResult(queryData.properties, queryData.columnTypes, cursor);
+        } finally {
+            cursor.close();
+        }
+    }
+
+}
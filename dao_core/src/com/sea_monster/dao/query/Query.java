@@ -22,6 +22,7 @@ import java.util.List;
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.DaoException;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
 
 /**
  * A repeatable query returning entities.
@@ -31,16 +32,14 @@ import com.sea_monster.dao.IQueryDaoAccess;
  * @param <T>
  *            The enitity class the query will return results for.
  */
-// TODO support long, double and other types, not just Strings, for parameters
 // TODO Make parameters setable by Property (if unique in paramaters)
 // TODO Query for PKs/ROW IDs
-// TODO Make query compilable
 public class Query<T> extends AbstractQuery<T> {
     private final static class QueryData<T2> extends AbstractQueryData<T2, Query<T2>> {
         private final int limitPosition;
         private final int offsetPosition;
 
-        QueryData(AbstractDao<T2, ?> dao, String sql, String[] initialValues, int limitPosition, int offsetPosition) {
+        QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues, int limitPosition, int offsetPosition) {
             super(dao,sql,initialValues);
             this.limitPosition = limitPosition;
             this.offsetPosition = offsetPosition;
@@ -48,7 +47,7 @@ public class Query<T> extends AbstractQuery<T> {
 
         @Override
         protected Query<T2> createQuery() {
-            return new Query<T2>(this, dao, sql, initialValues.clone(), limitPosition, offsetPosition);
+            return new Query<T2>(this, dao, sql, initialValues.copy(), limitPosition, offsetPosition);
         }
 
     }
@@ -60,7 +59,7 @@ public class Query<T> extends AbstractQuery<T> {
 
     static <T2> Query<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues, int limitPosition,
             int offsetPosition) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues), limitPosition,
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues), limitPosition,
                 offsetPosition);
         return queryData.forCurrentThread();
     }
@@ -69,7 +68,7 @@ public class Query<T> extends AbstractQuery<T> {
     private final int offsetPosition;
     private final QueryData<T> queryData;
 
-    private Query(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, String[] initialValues, int limitPosition,
+    private Query(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues, int limitPosition,
             int offsetPosition) {
         super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
@@ -81,6 +80,15 @@ public class Query<T> extends AbstractQuery<T> {
         return queryData.forCurrentThread(this);
     }
 
+    /**
+     * Creates an immutable query executable by any thread without per-thread copies; the current parameters become its
+     * default values (see {@link SharedQuery}).
+     */
+    public SharedQuery<T> toShared() {
+        checkThread();
+        return new SharedQuery<T>(dao, sql, parameters.copy(), limitPosition, offsetPosition);
+    }
+
     /**
      * Sets the parameter (0 based) using the position in which it was added during building the query.
      */
@@ -100,7 +108,7 @@ public class Query<T> extends AbstractQuery<T> {
         if (limitPosition == -1) {
             throw new IllegalStateException("Limit must be set with QueryBuilder before it can be used here");
         }
-        parameters[limitPosition] = Integer.toString(limit);
+        parameters.setLong(limitPosition, limit);
     }
 
     /**
@@ -112,14 +120,16 @@ public class Query<T> extends AbstractQuery<T> {
         if (offsetPosition == -1) {
             throw new IllegalStateException("Offset must be set with QueryBuilder before it can be used here");
         }
-        parameters[offsetPosition] = Integer.toString(offset);
+        parameters.setLong(offsetPosition, offset);
     }
 
-    /** Executes the query and returns the result as a list containing all entities loaded into memory. */
+    /**
+     * Executes the query and returns the result as a list containing all entities loaded into memory. Served from the
+     * session's {@link QueryCache} if enabled.
+     */
     public List<T> list() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
-        return daoAccess.loadAllAndCloseCursor(cursor);
+        return QueryCache.loadList(dao, daoAccess, sql, parameters);
     }
 
     /**
@@ -129,12 +139,12 @@ public class Query<T> extends AbstractQuery<T> {
      */
     public LazyList<T> listLazy() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return new LazyList<T>(daoAccess, cursor, true);
     }
 
     public Cursor getCursor(){
-        return dao.getDatabase().rawQuery(sql, parameters);
+        return rawQuery();
     }
 
 
@@ -144,7 +154,7 @@ public class Query<T> extends AbstractQuery<T> {
      */
     public LazyList<T> listLazyUncached() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
+        Cursor cursor = rawQuery();
         return new LazyList<T>(daoAccess, cursor, false);
     }
 
@@ -156,6 +166,24 @@ public class Query<T> extends AbstractQuery<T> {
         return listLazyUncached().listIteratorAutoClose();
     }
 
+    /**
+     * Executes the query and returns a forward-only iterator that reuses ringSize entity objects instead of creating one
+     * per row, bypassing the identity scope. Use this to stream rows (e.g. aggregations or exports): an entity returned
+     * by next() is overwritten after ringSize further calls. Relations of the entities should not be used. Entities that
+     * cannot be modified (protobuf) are created per row. Make sure to close the iterator if it is not fully iterated
+     * through.
+     */
+    public CloseableListIterator<T> listIteratorRecycled(int ringSize) {
+        checkThread();
+        Cursor cursor = rawQuery();
+        return new RecyclingIterator<T>(daoAccess, cursor, ringSize);
+    }
+
+    /** Like {@link #listIteratorRecycled(int)} reusing a single entity object. */
+    public CloseableListIterator<T> listIteratorRecycled() {
+        return listIteratorRecycled(1);
+    }
+
     /**
      * Executes the query and returns the unique result or null.
      * 
@@ -165,8 +193,7 @@ public class Query<T> extends AbstractQuery<T> {
      */
     public T unique() {
         checkThread();
-        Cursor cursor = dao.getDatabase().rawQuery(sql, parameters);
-        return daoAccess.loadUniqueAndCloseCursor(cursor);
+        return QueryCache.loadUnique(dao, daoAccess, sql, parameters);
     }
 
     /**
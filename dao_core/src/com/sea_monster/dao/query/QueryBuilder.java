@@ -61,6 +61,10 @@ public class QueryBuilder<T> {
     private StringBuilder orderBuilder;
     private StringBuilder joinBuilder;
 
+    /** Properties given to orderAsc/orderDesc (for keyset pagination); null once a custom or raw order was added. */
+    private List<Property> orderProperties = new ArrayList<Property>();
+    private List<Boolean> orderDescending = new ArrayList<Boolean>();
+
     private final List<WhereCondition> whereConditions;
 
     private final List<Object> values;
@@ -186,6 +190,7 @@ public class QueryBuilder<T> {
      */
     public QueryBuilder<T> orderAsc(Property... properties) {
         orderAscOrDesc(" ASC", properties);
+        addOrderProperties(false, properties);
         return this;
     }
 
@@ -194,9 +199,19 @@ public class QueryBuilder<T> {
      */
     public QueryBuilder<T> orderDesc(Property... properties) {
         orderAscOrDesc(" DESC", properties);
+        addOrderProperties(true, properties);
         return this;
     }
 
+    private void addOrderProperties(boolean descending, Property... properties) {
+        if (orderProperties != null) {
+            for (Property property : properties) {
+                orderProperties.add(property);
+                orderDescending.add(descending);
+            }
+        }
+    }
+
     private void orderAscOrDesc(String ascOrDescWithLeadingSpace, Property... properties) {
         for (Property property : properties) {
             checkOrderBuilder();
@@ -215,6 +230,7 @@ public class QueryBuilder<T> {
         checkOrderBuilder();
         append(orderBuilder, property).append(' ');
         orderBuilder.append(customOrderForProperty);
+        orderProperties = null;
         return this;
     }
 
@@ -225,6 +241,7 @@ public class QueryBuilder<T> {
     public QueryBuilder<T> orderRaw(String rawOrder) {
         checkOrderBuilder();
         orderBuilder.append(rawOrder);
+        orderProperties = null;
         return this;
     }
 
@@ -267,6 +284,14 @@ public class QueryBuilder<T> {
         return this;
     }
 
+    /**
+     * Builds an immutable query that can be shared by threads, taking its parameters per execution (see
+     * {@link SharedQuery}).
+     */
+    public SharedQuery<T> buildShared() {
+        return build().toShared();
+    }
+
     /**
      * Builds a reusable query object (Query objects can be executed more efficiently than creating a QueryBuilder for
      * each execution.
@@ -286,33 +311,150 @@ public class QueryBuilder<T> {
             builder.append(" ORDER BY ").append(orderBuilder);
         }
 
+        List<Object> queryValues = new ArrayList<Object>(values);
+        int limitPosition = appendLimitAndOffset(builder, queryValues);
+        int offsetPosition = offset != null ? limitPosition + 1 : -1;
+
+        String sql = builder.toString();
+        if (LOG_SQL) {
+            DaoLog.d("Built SQL for query: " + sql);
+        }
+
+        if (LOG_VALUES) {
+            DaoLog.d("Values for query: " + queryValues);
+        }
+
+        return Query.create(dao, sql, queryValues.toArray(), limitPosition, offsetPosition);
+    }
+
+    /**
+     * Appends limit and offset parameters to the given query values, which must be a copy of the where values so the
+     * builder can build further queries.
+     * 
+     * @return position of the limit parameter (followed by the offset parameter if set), or -1 without limit
+     */
+    private int appendLimitAndOffset(StringBuilder builder, List<Object> queryValues) {
         int limitPosition = -1;
         if (limit != null) {
             builder.append(" LIMIT ?");
-            values.add(limit);
-            limitPosition = values.size() - 1;
+            queryValues.add(limit);
+            limitPosition = queryValues.size() - 1;
         }
 
-        int offsetPosition = -1;
         if (offset != null) {
             if (limit == null) {
                 throw new IllegalStateException("Offset cannot be set without limit");
             }
             builder.append(" OFFSET ?");
-            values.add(offset);
-            offsetPosition = values.size() - 1;
+            queryValues.add(offset);
         }
+        return limitPosition;
+    }
+
+    /**
+     * Builds a query paging through the results by their order (keyset or "seek" pagination): instead of an offset,
+     * each page continues after the order values of the previous page's last row, so fetching a page costs the same
+     * regardless of its depth (given a matching index). The order must be defined by {@link #orderAsc(Property...)} and
+     * {@link #orderDesc(Property...)} only, on non-null properties; the PK is added as tie-breaker if not ordered by
+     * already. Limit and offset must not be set.
+     */
+    public KeysetQuery<T> buildKeyset(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Illegal page size: " + pageSize);
+        }
+        if (limit != null || offset != null) {
+            throw new IllegalStateException("Keyset pagination uses its own page size instead of limit and offset");
+        }
+        if (orderProperties == null) {
+            throw new DaoException("Keyset pagination requires the order to be defined by orderAsc and orderDesc");
+        }
+        Property pkProperty = dao.getPkProperty();
+        if (pkProperty == null) {
+            throw new DaoException(dao + " (" + dao.getTablename() + ") does not have a single-column primary key");
+        }
+        List<Property> keyProperties = new ArrayList<Property>(orderProperties);
+        List<Boolean> keyDescending = new ArrayList<Boolean>(orderDescending);
+        StringBuilder order = new StringBuilder();
+        if (orderBuilder != null) {
+            order.append(orderBuilder);
+        }
+        if (!keyProperties.contains(pkProperty)) {
+            keyProperties.add(pkProperty);
+            keyDescending.add(false);
+            if (order.length() > 0) {
+                order.append(',');
+            }
+            append(order, pkProperty).append(" ASC");
+        }
+
+        StringBuilder builder = new StringBuilder(IQueryDaoAccess.InternalQueryDaoAccess.getStatements(dao)
+                .getSelectAll());
+        appendWhereClause(builder);
+        String where = builder.toString();
+        String orderAndLimit = " ORDER BY " + order + " LIMIT ?";
+
+        List<Object> firstValues = new ArrayList<Object>(values);
+        firstValues.add(pageSize);
+        String firstSql = where + orderAndLimit;
+
+        builder.append(whereConditions.isEmpty() ? " WHERE " : " AND ");
+        int sqliteVersion = IQueryDaoAccess.InternalQueryDaoAccess.getStatements(dao).getSqliteVersion();
+        int[] keyColumnOfParameter = KeysetQuery.appendPredicate(builder, keyProperties, keyDescending,
+                sqliteVersion);
+        int keyParameterStart = values.size();
+        List<Object> nextValues = new ArrayList<Object>(values);
+        for (int i = 0; i < keyColumnOfParameter.length; i++) {
+            nextValues.add(null);
+        }
+        nextValues.add(pageSize);
+        String nextSql = builder.append(orderAndLimit).toString();
 
-        String sql = builder.toString();
         if (LOG_SQL) {
-            DaoLog.d("Built SQL for query: " + sql);
+            DaoLog.d("Built SQL for keyset query: " + nextSql);
+        }
+        if (LOG_VALUES) {
+            DaoLog.d("Values for keyset query: " + values);
+        }
+
+        Query<T> firstPageQuery = Query.create(dao, firstSql, firstValues.toArray(), firstValues.size() - 1, -1);
+        Query<T> nextPageQuery = Query.create(dao, nextSql, nextValues.toArray(), nextValues.size() - 1, -1);
+        return new KeysetQuery<T>(firstPageQuery, nextPageQuery, pageSize,
+                keyProperties.toArray(new Property[keyProperties.size()]), keyParameterStart, keyColumnOfParameter);
+    }
+
+    /**
+     * Builds a reusable query selecting only the given properties (instead of all columns to create entities). Where
+     * conditions, order, limit, and offset apply like for {@link #build()}.
+     */
+    public ProjectionQuery<T> select(Property... properties) {
+        if (properties.length == 0) {
+            throw new DaoException("At least one property must be selected");
         }
+        String[] columns = new String[properties.length];
+        for (int i = 0; i < properties.length; i++) {
+            checkProperty(properties[i]);
+            columns[i] = properties[i].columnName;
+        }
+        StringBuilder builder = new StringBuilder(SqlUtils.createSqlSelect(dao.getTablename(), columns));
+
+        appendWhereClause(builder);
+
+        if (orderBuilder != null && orderBuilder.length() > 0) {
+            builder.append(" ORDER BY ").append(orderBuilder);
+        }
+
+        List<Object> queryValues = new ArrayList<Object>(values);
+        appendLimitAndOffset(builder, queryValues);
 
+        String sql = builder.toString();
+        if (LOG_SQL) {
+            DaoLog.d("Built SQL for projection query: " + sql);
+        }
         if (LOG_VALUES) {
-            DaoLog.d("Values for query: " + values);
+            DaoLog.d("Values for projection query: " + queryValues);
         }
 
-        return Query.create(dao, sql, values.toArray(), limitPosition, offsetPosition);
+        return ProjectionQuery.create(dao, sql, queryValues.toArray(), properties.clone());
     }
 
     /**
@@ -580,6 +722,14 @@ public class QueryBuilder<T> {
         return build().listIterator();
     }
 
+    /**
+     * Shorthand for {@link QueryBuilder#build() build()}.{@link Query#listIteratorRecycled(int)
+     * listIteratorRecycled(ringSize)}; see {@link Query#listIteratorRecycled(int)} for details.
+     */
+    public CloseableListIterator<T> listIteratorRecycled(int ringSize) {
+        return build().listIteratorRecycled(ringSize);
+    }
+
     /**
      * Shorthand for {@link QueryBuilder#build() build()}.{@link Query#unique() unique()}; see {@link Query#unique()}
      * for details. To execute a query more than once, you should build the query and keep the {@link Query} object for
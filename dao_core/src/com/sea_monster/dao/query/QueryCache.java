@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sea_monster.dao.AbstractDao;
+import com.sea_monster.dao.AbstractDaoSession;
+import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
+import com.sea_monster.dao.internal.TableVersion;
+
+/**
+ * Opt-in result cache of a session (see {@link com.sea_monster.dao.AbstractDaoSession#enableQueryCache(int, int)}),
+ * used by {@link Query#list()}, {@link Query#unique()}, and {@link CountQuery#count()}. Results are keyed by SQL and
+ * parameter values, and kept in LRU order bounded by a maximum number of entries and a maximum number of entity rows.
+ * 
+ * Entries are invalidated by table: writes through the DAOs, {@link DeleteQuery}, and {@link UpdateQuery} of this session
+ * remove them right away, writes of other sessions when the entry is accessed next (by the table's version). Writes
+ * bypassing greenDAO (e.g. raw SQL on the database) and conditions referring to other tables (e.g. sub selects in raw
+ * WHERE clauses) are not tracked; call {@link #invalidate(String)} or {@link #clear()} in those cases. Results are
+ * not cached inside transactions, which may still be rolled back.
+ * 
+ * Cached lists are copied for each call, but contain the same entity objects; so do not modify entities returned by
+ * cached queries without saving them. This class is thread-safe.
+ */
+public class QueryCache {
+
+    private static final class Key {
+        private final String sql;
+        private final QueryParameters parameters;
+        private final int hash;
+
+        private Key(String sql, QueryParameters parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+            hash = 31 * sql.hashCode() + parameters.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && sql.equals(other.sql) && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final String tablename;
+        private final TableVersion tableVersion;
+        private final long version;
+        private final Object value;
+        private final int rows;
+
+        private Entry(String tablename, TableVersion tableVersion, long version, Object value, int rows) {
+            this.tablename = tablename;
+            this.tableVersion = tableVersion;
+            this.version = version;
+            this.value = value;
+            this.rows = rows;
+        }
+    }
+
+    private final int maxEntries;
+    private final int maxRows;
+    private final LinkedHashMap<Key, Entry> entries;
+    /** Keys of the entries by table, so writes invalidate their table without scanning all entries. */
+    private final Map<String, Set<Key>> keysByTable = new HashMap<String, Set<Key>>();
+    /** Versions of all tables queried through this cache, reset by {@link #clear()}. */
+    private final Set<TableVersion> tableVersions = new HashSet<TableVersion>();
+    private int rows;
+
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+    private long invalidationCount;
+
+    /**
+     * @param maxEntries
+     *            maximum number of cached results
+     * @param maxRows
+     *            maximum number of entities (or counts) in all cached results; bigger results are not cached
+     */
+    public QueryCache(int maxEntries, int maxRows) {
+        if (maxEntries <= 0 || maxRows <= 0) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxRows = maxRows;
+        entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    }
+
+    /** The result cache of the DAO's session, or null if it is not enabled. */
+    static QueryCache forDao(AbstractDao<?, ?> dao) {
+        AbstractDaoSession session = dao.getSession();
+        return session != null ? session.getQueryCache() : null;
+    }
+
+    /**
+     * Loads all entities selected by the given SQL and parameters, served from the DAO session's cache if enabled (used
+     * by {@link Query#list()} and {@link SharedQuery#list(Object...)}).
+     */
+    static <T> List<T> loadList(AbstractDao<T, ?> dao, IQueryDaoAccess<T> daoAccess, String sql,
+            QueryParameters parameters) {
+        QueryCache queryCache = forDao(dao);
+        if (queryCache == null) {
+            return daoAccess.loadAllAndCloseCursor(parameters.rawQuery(dao.getDatabase(), sql));
+        }
+        @SuppressWarnings("unchecked")
+        List<T> cached = (List<T>) queryCache.get(sql, parameters);
+        if (cached != null) {
+            return new ArrayList<T>(cached);
+        }
+        TableVersion tableVersion = IQueryDaoAccess.InternalQueryDaoAccess.getTableVersion(dao);
+        long version = queryCache.getCacheableVersion(tableVersion);
+        List<T> list = daoAccess.loadAllAndCloseCursor(parameters.rawQuery(dao.getDatabase(), sql));
+        queryCache.put(sql, parameters, dao.getTablename(), tableVersion, version, new ArrayList<T>(list), list.size());
+        return list;
+    }
+
+    /**
+     * Loads the unique entity selected by the given SQL and parameters or null, like
+     * {@link #loadList(AbstractDao, IQueryDaoAccess, String, QueryParameters)}. Shares cached results with it.
+     * 
+     * @throws DaoException
+     *             if the result is not unique
+     */
+    static <T> T loadUnique(AbstractDao<T, ?> dao, IQueryDaoAccess<T> daoAccess, String sql,
+            QueryParameters parameters) {
+        QueryCache queryCache = forDao(dao);
+        if (queryCache == null) {
+            return daoAccess.loadUniqueAndCloseCursor(parameters.rawQuery(dao.getDatabase(), sql));
+        }
+        @SuppressWarnings("unchecked")
+        List<T> cached = (List<T>) queryCache.get(sql, parameters);
+        if (cached != null) {
+            if (cached.size() > 1) {
+                throw new DaoException("Expected unique result, but count was " + cached.size());
+            }
+            return cached.isEmpty() ? null : cached.get(0);
+        }
+        TableVersion tableVersion = IQueryDaoAccess.InternalQueryDaoAccess.getTableVersion(dao);
+        long version = queryCache.getCacheableVersion(tableVersion);
+        T entity = daoAccess.loadUniqueAndCloseCursor(parameters.rawQuery(dao.getDatabase(), sql));
+        List<T> result = entity != null ? Collections.singletonList(entity) : Collections.<T> emptyList();
+        queryCache.put(sql, parameters, dao.getTablename(), tableVersion, version, result, result.size());
+        return entity;
+    }
+
+    /**
+     * Returns the result cached for the given SQL and parameters if it is still up to date, or null.
+     */
+    synchronized Object get(String sql, QueryParameters parameters) {
+        Key key = new Key(sql, parameters);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.tableVersion.get() == entry.version) {
+                hitCount++;
+                return entry.value;
+            }
+            // Written by another session
+            entries.remove(key);
+            unindex(key, entry);
+            rows -= entry.rows;
+            invalidationCount++;
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Version to pass to {@link #put(String, QueryParameters, String, TableVersion, long, Object, int)}; must be called
+     * before executing the query. Returns -1 if the result may not be cached.
+     */
+    long getCacheableVersion(TableVersion tableVersion) {
+        synchronized (this) {
+            tableVersions.add(tableVersion);
+        }
+        return tableVersion.isCacheable() ? tableVersion.get() : -1;
+    }
+
+    /**
+     * Caches the result unless the table was written since the given version was obtained, or the result is too big.
+     * The parameters are copied.
+     */
+    synchronized void put(String sql, QueryParameters parameters, String tablename, TableVersion tableVersion,
+            long version, Object value, int valueRows) {
+        if (version == -1 || valueRows > maxRows || tableVersion.get() != version) {
+            return;
+        }
+        Key key = new Key(sql, parameters.copy());
+        Entry old = entries.put(key, new Entry(tablename, tableVersion, version, value, valueRows));
+        if (old != null) {
+            unindex(key, old);
+            rows -= old.rows;
+        }
+        Set<Key> tableKeys = keysByTable.get(tablename);
+        if (tableKeys == null) {
+            tableKeys = new HashSet<Key>();
+            keysByTable.put(tablename, tableKeys);
+        }
+        tableKeys.add(key);
+        rows += valueRows;
+        putCount++;
+
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || rows > maxRows) && iterator.hasNext()) {
+            // Least recently used first
+            Map.Entry<Key, Entry> evicted = iterator.next();
+            iterator.remove();
+            unindex(evicted.getKey(), evicted.getValue());
+            rows -= evicted.getValue().rows;
+            evictionCount++;
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        Set<Key> tableKeys = keysByTable.get(entry.tablename);
+        if (tableKeys != null) {
+            tableKeys.remove(key);
+            if (tableKeys.isEmpty()) {
+                keysByTable.remove(entry.tablename);
+            }
+        }
+    }
+
+    /** Removes all results of queries on the given table. */
+    public synchronized void invalidate(String tablename) {
+        Set<Key> tableKeys = keysByTable.remove(tablename);
+        if (tableKeys != null) {
+            for (Key key : tableKeys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    rows -= entry.rows;
+                    invalidationCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all results; does not reset the statistics. Also forgets pending writes of transactions that ended
+     * without greenDAO noticing, which otherwise keep results of the table from being cached until the writing thread
+     * checks again.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        keysByTable.clear();
+        rows = 0;
+        for (TableVersion tableVersion : tableVersions) {
+            tableVersion.invalidate();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Number of entities (and counts) held by all cached results. */
+    public synchronized int getRowCount() {
+        return rows;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    /** Number of results removed to stay within the limits. */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Number of results removed because their table was written. */
+    public synchronized long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    /** Resets hit, miss, put, eviction, and invalidation counts. */
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        putCount = 0;
+        evictionCount = 0;
+        invalidationCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "QueryCache[size=" + entries.size() + ", rows=" + rows + ", hits=" + hitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + ", invalidations=" + invalidationCount + "]";
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import android.database.Cursor;
+
+import java.util.NoSuchElementException;
+
+import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.IQueryDaoAccess;
+
+/**
+ * Forward-only iterator reusing a ring of entity objects to read the rows of a cursor (see
+ * {@link Query#listIteratorRecycled(int)}). The entity returned by {@link #next()} is overwritten once ringSize more
+ * entities were read, so it must not be kept beyond that. Entities bypass the identity scope. The cursor is closed
+ * once the iterator is fully iterated through.
+ * 
+ * @author Markus
+ * 
+ * @param <E>
+ *            Entity type.
+ */
+class RecyclingIterator<E> implements CloseableListIterator<E> {
+    private final IQueryDaoAccess<E> daoAccess;
+    private final Cursor cursor;
+    private final Object[] ring;
+    private final int size;
+    private int index;
+
+    RecyclingIterator(IQueryDaoAccess<E> daoAccess, Cursor cursor, int ringSize) {
+        if (ringSize < 1) {
+            cursor.close();
+            throw new IllegalArgumentException("Illegal ring size: " + ringSize);
+        }
+        this.daoAccess = daoAccess;
+        this.cursor = cursor;
+        ring = new Object[ringSize];
+        size = cursor.getCount();
+        if (size == 0) {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return index < size;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E next() {
+        if (index >= size) {
+            throw new NoSuchElementException();
+        }
+        if (!cursor.moveToPosition(index)) {
+            throw new DaoException("Could not move to cursor position " + index);
+        }
+        int slot = index % ring.length;
+        E entity = daoAccess.loadCurrentRecycled(cursor, 0, (E) ring[slot]);
+        ring[slot] = entity;
+        index++;
+        if (index == size) {
+            close();
+        }
+        return entity;
+    }
+
+    @Override
+    public int nextIndex() {
+        return index;
+    }
+
+    @Override
+    public int previousIndex() {
+        return index - 1;
+    }
+
+    /** Always false: recycled entities cannot be revisited. */
+    @Override
+    public boolean hasPrevious() {
+        return false;
+    }
+
+    @Override
+    public E previous() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void add(E object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void set(E object) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+
+}
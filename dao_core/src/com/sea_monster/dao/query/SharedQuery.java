@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2011-2013 Markus Junginger, greenrobot (http://greenrobot.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.sea_monster.dao.query;
+
+import android.database.Cursor;
+
+import java.util.List;
+
+import com.sea_monster.dao.AbstractDao;
+import com.sea_monster.dao.DaoException;
+import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.internal.QueryParameters;
+
+/**
+ * An immutable query that may be shared by any number of threads (see {@link Query#toShared()} and
+ * {@link QueryBuilder#buildShared()}). Unlike {@link Query}, it has no owner thread and no parameter state: parameters
+ * are passed to each execution, so executing it needs neither a per-thread copy nor synchronization.
+ * 
+ * Parameters are passed in the order they were added while building the query, without limit and offset; the values
+ * given to the QueryBuilder (or set on the Query the shared query was created from) are used if none are passed.
+ * 
+ * @param <T>
+ *            The entity class the query will return results for.
+ */
+public class SharedQuery<T> {
+    private final AbstractDao<T, ?> dao;
+    private final IQueryDaoAccess<T> daoAccess;
+    private final String sql;
+    /** Never modified; copied for each execution with parameters. */
+    private final QueryParameters defaultValues;
+    /** Indexes of the parameters passed to executions, i.e. all but limit and offset. */
+    private final int[] parameterIndexes;
+
+    SharedQuery(AbstractDao<T, ?> dao, String sql, QueryParameters defaultValues, int limitPosition, int offsetPosition) {
+        this.dao = dao;
+        this.daoAccess = new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao);
+        this.sql = sql;
+        this.defaultValues = defaultValues;
+        int count = defaultValues.size();
+        if (limitPosition >= 0) {
+            count--;
+        }
+        if (offsetPosition >= 0) {
+            count--;
+        }
+        parameterIndexes = new int[count];
+        int parameter = 0;
+        for (int i = 0; i < defaultValues.size(); i++) {
+            if (i != limitPosition && i != offsetPosition) {
+                parameterIndexes[parameter++] = i;
+            }
+        }
+    }
+
+    /** Number of parameters to pass to executions. */
+    public int getParameterCount() {
+        return parameterIndexes.length;
+    }
+
+    private QueryParameters createParameters(Object[] values) {
+        if (values == null || values.length == 0) {
+            return defaultValues;
+        }
+        if (values.length != parameterIndexes.length) {
+            throw new DaoException("Expected " + parameterIndexes.length + " parameters, but got " + values.length);
+        }
+        QueryParameters parameters = defaultValues.copy();
+        for (int i = 0; i < values.length; i++) {
+            parameters.set(parameterIndexes[i], values[i]);
+        }
+        return parameters;
+    }
+
+    private Cursor rawQuery(QueryParameters parameters) {
+        return parameters.rawQuery(dao.getDatabase(), sql);
+    }
+
+    /** Executes the query with the given parameters and returns all entities loaded into memory. */
+    public List<T> list(Object... values) {
+        return QueryCache.loadList(dao, daoAccess, sql, createParameters(values));
+    }
+
+    /**
+     * Executes the query with the given parameters and returns a list that lazy loads the entities on first access.
+     * Make sure to close it to close the underlying cursor.
+     */
+    public LazyList<T> listLazy(Object... values) {
+        return new LazyList<T>(daoAccess, rawQuery(createParameters(values)), true);
+    }
+
+    /**
+     * Executes the query with the given parameters and returns the result as a list iterator; make sure to close it to
+     * close the underlying cursor. The cursor is closed once the iterator is fully iterated through.
+     */
+    public CloseableListIterator<T> listIterator(Object... values) {
+        return new LazyList<T>(daoAccess, rawQuery(createParameters(values)), false).listIteratorAutoClose();
+    }
+
+    /**
+     * Executes the query with the given parameters and returns the unique result or null.
+     * 
+     * @throws DaoException
+     *             if the result is not unique
+     */
+    public T unique(Object... values) {
+        return QueryCache.loadUnique(dao, daoAccess, sql, createParameters(values));
+    }
+
+    /**
+     * Executes the query with the given parameters and returns the unique result (never null).
+     * 
+     * @throws DaoException
+     *             if the result is not unique or no entity was found
+     */
+    public T uniqueOrThrow(Object... values) {
+        T entity = unique(values);
+        if (entity == null) {
+            throw new DaoException("No entity found for query");
+        }
+        return entity;
+    }
+
+}
@@ -4,6 +4,8 @@ import android.database.sqlite.SQLiteDatabase;
 
 import com.sea_monster.dao.AbstractDao;
 import com.sea_monster.dao.IQueryDaoAccess;
+import com.sea_monster.dao.TableChange;
+import com.sea_monster.dao.internal.QueryParameters;
 
 /**
  * Created by dragonj on 2/19/14.
@@ -12,24 +14,24 @@ public class UpdateQuery<T> extends AbstractQuery<T> {
 
     private final static class QueryData<T2> extends AbstractQueryData<T2, UpdateQuery<T2>> {
 
-        private QueryData(AbstractDao<T2, ?> dao, String sql, String[] initialValues) {
+        private QueryData(AbstractDao<T2, ?> dao, String sql, QueryParameters initialValues) {
             super(dao, sql, initialValues);
         }
 
         @Override
         protected UpdateQuery<T2> createQuery() {
-            return new UpdateQuery<T2>(this, dao, sql, initialValues.clone());
+            return new UpdateQuery<T2>(this, dao, sql, initialValues.copy());
         }
     }
 
     static <T2> UpdateQuery<T2> create(AbstractDao<T2, ?> dao, String sql, Object[] initialValues) {
-        QueryData<T2> queryData = new QueryData<T2>(dao, sql, toStringArray(initialValues));
+        QueryData<T2> queryData = new QueryData<T2>(dao, sql, QueryParameters.create(initialValues));
         return queryData.forCurrentThread();
     }
 
     private final QueryData<T> queryData;
 
-    private UpdateQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, String[] initialValues) {
+    private UpdateQuery(QueryData<T> queryData, AbstractDao<T, ?> dao, String sql, QueryParameters initialValues) {
         super(dao, new IQueryDaoAccess.InternalQueryDaoAccess<T>(dao), sql, initialValues);
         this.queryData = queryData;
     }
@@ -42,19 +44,25 @@ public class UpdateQuery<T> extends AbstractQuery<T> {
     public void update() {
         checkThread();
         SQLiteDatabase db = dao.getDatabase();
-        if (db.isDbLockedByCurrentThread()) {
-            dao.getDatabase().execSQL(sql, parameters);
-        } else {
-            // Do TX to acquire a connection before locking this to avoid deadlocks
-            // Locking order as described in AbstractDao
-            db.beginTransaction();
-            try {
-                dao.getDatabase().execSQL(sql, parameters);
-                db.setTransactionSuccessful();
-            } finally {
-                db.endTransaction();
+        boolean counted = IQueryDaoAccess.InternalQueryDaoAccess.beginWrite(dao);
+        try {
+            if (db.isDbLockedByCurrentThread()) {
+                executeUpdateDelete();
+            } else {
+                // Do TX to acquire a connection before locking this to avoid deadlocks
+                // Locking order as described in AbstractDao
+                db.beginTransaction();
+                try {
+                    executeUpdateDelete();
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
             }
+        } finally {
+            IQueryDaoAccess.InternalQueryDaoAccess.endWrite(dao, counted, 0);
         }
+        IQueryDaoAccess.InternalQueryDaoAccess.onTableChanged(dao, TableChange.UPDATE);
     }
 
 
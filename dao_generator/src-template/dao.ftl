@@ -126,11 +126,17 @@ as property>${property.columnName}<#if property_has_next>,</#if></#list>);");
     @Override
     protected void bindValues(SQLiteStatement stmt, ${entity.className} entity) {
         stmt.clearBindings();
+        bindValues(stmt, entity, 0);
+    }
+
+    /** @inheritdoc */
+    @Override
+    protected void bindValues(SQLiteStatement stmt, ${entity.className} entity, int offset) {
 <#list entity.properties as property>
 <#if property.notNull || entity.protobuf>
 <#if entity.protobuf>
         if(entity.has${property.propertyName?cap_first}()) {
-    </#if>        stmt.bind${toBindType[property.propertyType]}(${property_index + 1}, entity.get${property.propertyName?cap_first}()<#if
+    </#if>        stmt.bind${toBindType[property.propertyType]}(offset + ${property_index + 1}, entity.get${property.propertyName?cap_first}()<#if
      property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
 <#if entity.protobuf>
         }
@@ -138,7 +144,7 @@ as property>${property.columnName}<#if property_has_next>,</#if></#list>);");
 <#else> <#-- nullable, non-protobuff -->
         ${property.javaType} ${property.propertyName} = entity.get${property.propertyName?cap_first}();
         if (${property.propertyName} != null) {
-            stmt.bind${toBindType[property.propertyType]}(${property_index + 1}, ${property.propertyName}<#if
+            stmt.bind${toBindType[property.propertyType]}(offset + ${property_index + 1}, ${property.propertyName}<#if
  property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
         }
 </#if>
@@ -161,6 +167,84 @@ as property>${property.columnName}<#if property_has_next>,</#if></#list>);");
 </#list>
     }
 
+    /** @inheritdoc */
+    @Override
+    protected boolean isBatchBindingSupported() {
+        return true;
+    }
+
+<#if entity.upsertIndex??>
+    private static final String[] UPSERT_CONFLICT_COLUMNS = { <#list entity.upsertIndex.properties
+as property>"${property.columnName}"<#if property_has_next>, </#if></#list> };
+
+    /** @inheritdoc */
+    @Override
+    protected String[] getUpsertConflictColumns() {
+        return UPSERT_CONFLICT_COLUMNS;
+    }
+
+    /** @inheritdoc */
+    @Override
+    protected void bindUpsertConflictValues(SQLiteStatement stmt, ${entity.className} entity, int offset) {
+<#list entity.upsertIndex.properties as property>
+<#if property.notNull>
+        stmt.bind${toBindType[property.propertyType]}(offset + ${property_index + 1}, entity.get${property.propertyName?cap_first}()<#if
+     property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
+<#else>
+        ${property.javaType} ${property.propertyName} = entity.get${property.propertyName?cap_first}();
+        if (${property.propertyName} != null) {
+            stmt.bind${toBindType[property.propertyType]}(offset + ${property_index + 1}, ${property.propertyName}<#if
+ property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
+        } else {
+            stmt.bindNull(offset + ${property_index + 1});
+        }
+</#if>
+</#list>
+    }
+
+</#if>
+<#if entity.dirtyTracking>
+    /** @inheritdoc */
+    @Override
+    protected boolean isDirtyTrackingSupported() {
+        return true;
+    }
+
+    /** @inheritdoc */
+    @Override
+    protected long getDirtyProperties(${entity.className} entity) {
+        return ~entity.__getCleanFlags();
+    }
+
+    /** @inheritdoc */
+    @Override
+    protected void resetDirtyProperties(${entity.className} entity) {
+        entity.__setCleanFlags(-1L);
+    }
+
+    /** @inheritdoc */
+    @Override
+    protected void bindDirtyValues(SQLiteStatement stmt, ${entity.className} entity, long dirtyProperties) {
+        stmt.clearBindings();
+        int bindIndex = 0;
+<#list entity.properties as property>
+        if ((dirtyProperties & (1L << ${property_index})) != 0) {
+            bindIndex++;
+<#if property.notNull>
+            stmt.bind${toBindType[property.propertyType]}(bindIndex, entity.get${property.propertyName?cap_first}()<#if
+     property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
+<#else>
+            ${property.javaType} ${property.propertyName} = entity.get${property.propertyName?cap_first}();
+            if (${property.propertyName} != null) {
+                stmt.bind${toBindType[property.propertyType]}(bindIndex, ${property.propertyName}<#if
+ property.propertyType == "Boolean"> ? 1l: 0l</#if><#if property.propertyType == "Date">.getTime()</#if>);
+            }
+</#if>
+        }
+</#list>
+    }
+
+</#if>
 <#if entity.active>
     @Override
     protected void attachEntity(${entity.className} entity) {
@@ -210,6 +294,9 @@ as property>${property.columnName}<#if property_has_next>,</#if></#list>);");
             property.propertyType == "Date">)</#if><#if property_has_next>,</#if> // ${property.propertyName}
 </#list>        
         );
+<#if entity.dirtyTracking>
+        entity.__setCleanFlags(-1L);
+</#if>
         return entity;
 <#else>
 <#--
@@ -234,6 +321,9 @@ as property>${property.columnName}<#if property_has_next>,</#if></#list>);");
             property.propertyType == "Boolean"> != 0</#if><#if
             property.propertyType == "Date">)</#if>);
 </#list>
+<#if entity.dirtyTracking>
+        entity.__setCleanFlags(-1L);
+</#if>
 </#if>
      }
     
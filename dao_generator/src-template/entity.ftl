@@ -58,6 +58,11 @@ as ifc>${ifc}<#if ifc_has_next>, </#if></#list></#if> {
 </#if>
     private ${property.javaType} ${property.propertyName};
 </#list>
+<#if entity.dirtyTracking>
+
+    /** Bit per property (by ordinal) not modified since the entity was loaded or saved; cleared by setters. */
+    private transient long __cleanFlags;
+</#if>
 
 <#if entity.active>
     /** Used to resolve relations */
@@ -127,9 +132,24 @@ property>${property.javaType} ${property.propertyName}<#if property_has_next>, <
 </#if>
     public void set${property.propertyName?cap_first}(${property.javaType} ${property.propertyName}) {
         this.${property.propertyName} = ${property.propertyName};
+<#if entity.dirtyTracking>
+        __cleanFlags &= ~(1L << ${property_index});
+</#if>
     }
 
 </#list>
+<#if entity.dirtyTracking>
+    /** Internal use by greenDAO: bit per property (by ordinal) not modified since the entity was loaded or saved. */
+    public long __getCleanFlags() {
+        return __cleanFlags;
+    }
+
+    /** Internal use by greenDAO; set to 0 to have all properties written by the next update. */
+    public void __setCleanFlags(long cleanFlags) {
+        __cleanFlags = cleanFlags;
+    }
+
+</#if>
 <#--
 ##########################################
 ########## To-One Relations ##############
@@ -184,6 +204,9 @@ property>${property.javaType} ${property.propertyName}<#if property_has_next>, <
 <#if toOne.useFkProperty>        
             ${toOne.fkProperties[0].propertyName} = <#if !toOne.fkProperties[0].notNull>${toOne.name} == null ? null : </#if>${toOne.name}.get${toOne.targetEntity.pkProperty.propertyName?cap_first}();
             ${toOne.name}__resolvedKey = ${toOne.fkProperties[0].propertyName};
+<#if entity.dirtyTracking>
+            __cleanFlags &= ~(1L << ${toOne.fkProperties[0].ordinal});
+</#if>
 <#else>
             ${toOne.name}__refreshed = true;
 </#if>
@@ -72,6 +72,8 @@ public class Entity {
     private boolean skipTableCreation;
     private Boolean active;
     private Boolean hasKeepSections;
+    private Boolean dirtyTracking;
+    private Index upsertIndex;
 
     Entity(Schema schema, String className) {
         this.schema = schema;
@@ -424,6 +426,31 @@ public class Entity {
         return active;
     }
 
+    /**
+     * Setters of dirty tracking entities record modified properties, so updates only write modified columns and are
+     * skipped if nothing was modified. Properties must be changed using the setters (not by assigning fields in keep
+     * sections). Not available for protobuf entities and entities with more than 64 properties.
+     */
+    public void setDirtyTracking(Boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+    }
+
+    public Boolean getDirtyTracking() {
+        return dirtyTracking;
+    }
+
+    /**
+     * Unique index identifying existing rows for upserts (the DAO's upsert methods); if not set, the primary key is
+     * used. The index must have been added to this entity.
+     */
+    public void setUpsertIndex(Index upsertIndex) {
+        this.upsertIndex = upsertIndex;
+    }
+
+    public Index getUpsertIndex() {
+        return upsertIndex;
+    }
+
     public Boolean getHasKeepSections() {
         return hasKeepSections;
     }
@@ -517,8 +544,18 @@ public class Entity {
             hasKeepSections = schema.isHasKeepSectionsByDefault();
         }
 
+        if (dirtyTracking == null) {
+            dirtyTracking = schema.isUseDirtyTrackingByDefault();
+        }
+        // Flags are stored in a long; protobuf entities are immutable
+        dirtyTracking &= !protobuf && properties.size() <= 64;
+
         init2ndPassIndexNamesWithDefaults();
 
+        if (upsertIndex != null && (!upsertIndex.isUnique() || !indexes.contains(upsertIndex))) {
+            throw new RuntimeException("Upsert index must be a unique index of " + this);
+        }
+
         for (ContentProvider contentProvider : contentProviders) {
             contentProvider.init2ndPass();
         }
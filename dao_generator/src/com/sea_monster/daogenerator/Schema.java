@@ -42,6 +42,7 @@ public class Schema {
     private Map<PropertyType, String> propertyToJavaTypeNullable;
     private boolean hasKeepSectionsByDefault;
     private boolean useActiveEntitiesByDefault;
+    private boolean useDirtyTrackingByDefault;
 
     public Schema(int version, String name, String defaultJavaPackage) {
         this(version, name,null, defaultJavaPackage);
@@ -64,6 +65,10 @@ public class Schema {
         useActiveEntitiesByDefault = true;
     }
 
+    public void enableDirtyTrackingByDefault() {
+        useDirtyTrackingByDefault = true;
+    }
+
     private void initTypeMappings() {
         propertyToDbType = new HashMap<PropertyType, String>();
         propertyToDbType.put(PropertyType.Boolean, "INTEGER");
@@ -184,6 +189,10 @@ public class Schema {
         return useActiveEntitiesByDefault;
     }
 
+    public boolean isUseDirtyTrackingByDefault() {
+        return useDirtyTrackingByDefault;
+    }
+
     void init2ndPass() {
         if (defaultJavaPackageDao == null) {
             defaultJavaPackageDao = defaultJavaPackage;